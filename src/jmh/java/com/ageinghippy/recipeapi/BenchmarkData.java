@@ -0,0 +1,89 @@
+package com.ageinghippy.recipeapi;
+
+import com.ageinghippy.recipeapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recipe graphs of a given size for the benchmarks
+ */
+public class BenchmarkData {
+
+    public static CustomUserDetails user(long id) {
+        return CustomUserDetails.builder()
+                .id(id)
+                .username("user" + id)
+                .authorities(List.of(new Role(Role.Roles.ROLE_USER)))
+                .build();
+    }
+
+    /**
+     * @param size the number of ingredients, steps and reviews
+     * @return {@code Recipe} a recipe with ids assigned throughout, as if loaded from the database
+     */
+    public static Recipe recipe(int size) {
+        Recipe recipe = Recipe.builder()
+                .id(1L)
+                .name("Benchmark recipe")
+                .minutesToMake(30)
+                .difficultyRating(5)
+                .user(user(1))
+                .ingredients(ingredients(size))
+                .steps(steps(size))
+                .build();
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            reviews.add(Review.builder()
+                    .id((long) i + 1)
+                    .user(user(i + 2))
+                    .recipe(recipe)
+                    .rating(i % 10 + 1)
+                    .description("Review number " + i + " of the benchmark recipe")
+                    .build());
+        }
+        recipe.setReviews(reviews);
+        return recipe;
+    }
+
+    /**
+     * @param size the number of ingredients and steps
+     * @return {@code Recipe} a patch changing every ingredient and step of {@link #recipe(int)} by id
+     */
+    public static Recipe patch(int size) {
+        Recipe patch = Recipe.builder()
+                .id(1L)
+                .name("Patched benchmark recipe")
+                .ingredients(ingredients(size))
+                .steps(steps(size))
+                .build();
+        patch.getIngredients().forEach(ingredient -> ingredient.setAmount("2 cups"));
+        patch.getSteps().forEach(step -> step.setDescription("Patched " + step.getDescription()));
+        return patch;
+    }
+
+    private static List<Ingredient> ingredients(int size) {
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ingredients.add(Ingredient.builder()
+                    .id((long) i + 1)
+                    .name("ingredient " + i)
+                    .amount("1 cup")
+                    .state("chopped")
+                    .build());
+        }
+        return ingredients;
+    }
+
+    private static List<Step> steps(int size) {
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            steps.add(Step.builder()
+                    .id((long) i + 1)
+                    .stepNumber(i + 1)
+                    .description("Do step " + (i + 1) + " of the benchmark recipe")
+                    .build());
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ageinghippy.recipeapi.model;
+
+import com.ageinghippy.recipeapi.BenchmarkData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a whole recipe graph, as written by GET /recipe/{id}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipeJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+    private Recipe recipe;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        recipe = BenchmarkData.recipe(size);
+        json = objectMapper.writeValueAsBytes(recipe);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(recipe);
+    }
+
+    @Benchmark
+    public Recipe deserialize() throws IOException {
+        return objectMapper.readValue(json, Recipe.class);
+    }
+}
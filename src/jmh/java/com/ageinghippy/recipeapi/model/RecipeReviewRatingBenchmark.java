@@ -0,0 +1,45 @@
+package com.ageinghippy.recipeapi.model;
+
+import com.ageinghippy.recipeapi.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The review rating of a recipe with many reviews: averaged over the reviews as Recipe.calculateReviewRating
+ * did on every load, against reading the persisted aggregate that replaced it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecipeReviewRatingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int size;
+
+    private Recipe recipe;
+
+    @Setup
+    public void setup() {
+        recipe = BenchmarkData.recipe(size);
+        // as RecipeRepo.applyReviewDelta leaves the row once every review is posted
+        int ratingSum = recipe.getReviews().stream().mapToInt(Review::getRating).sum();
+        recipe.setReviewCount(size);
+        recipe.setRatingSum(ratingSum);
+        recipe.setReviewRating(Math.floorDiv(ratingSum, size));
+    }
+
+    @Benchmark
+    public Integer averageOverReviews() {
+        // the calculation removed from Recipe
+        if (recipe.getReviews().isEmpty()) {
+            return null;
+        }
+        return recipe.getReviews().stream().map(Review::getRating).reduce(0, Integer::sum) / recipe.getReviews().size();
+    }
+
+    @Benchmark
+    public Integer persistedAggregate() {
+        return recipe.getReviewRating();
+    }
+}
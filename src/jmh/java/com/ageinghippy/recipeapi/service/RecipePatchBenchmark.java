@@ -0,0 +1,38 @@
+package com.ageinghippy.recipeapi.service;
+
+import com.ageinghippy.recipeapi.BenchmarkData;
+import com.ageinghippy.recipeapi.model.Recipe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The merge of a PATCH onto the stored recipe, see RecipeService.mergePatch. The patch changes every
+ * ingredient and step by id, which is the costly path - each one is looked up in the stored list.
+ * Patching the same values again leaves the recipe unchanged, so the state can be reused between invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipePatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private RecipeService recipeService;
+    private Recipe recipe;
+    private Recipe patch;
+
+    @Setup
+    public void setup() {
+        recipeService = new RecipeService();
+        recipe = BenchmarkData.recipe(size);
+        patch = BenchmarkData.patch(size);
+    }
+
+    @Benchmark
+    public Recipe mergePatch() {
+        recipeService.mergePatch(recipe, patch);
+        return recipe;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ageinghippy.recipeapi.validator;
+
+import com.ageinghippy.recipeapi.BenchmarkData;
+import com.ageinghippy.recipeapi.model.Recipe;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The custom constraints: ListSize and RequiredAndNotGoofy called directly, and bean validation of a whole
+ * recipe as done for @Valid request bodies, which runs them for every list and review
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private RequiredAndNotGoofyValidator requiredAndNotGoofyValidator;
+    private Recipe recipe;
+    private String description;
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        requiredAndNotGoofyValidator = new RequiredAndNotGoofyValidator();
+        recipe = BenchmarkData.recipe(size);
+        description = "A perfectly sensible review of a recipe, repeated. ".repeat(size / 10 + 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean requiredAndNotGoofy() {
+        return requiredAndNotGoofyValidator.isValid(description, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Recipe>> validateRecipe() {
+        return validator.validate(recipe);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Recipe>> validateIngredientListSize() {
+        // ListSizeValidator needs a real ConstraintValidatorContext, so it is called through the validator
+        return validator.validateProperty(recipe, "ingredients");
+    }
+}
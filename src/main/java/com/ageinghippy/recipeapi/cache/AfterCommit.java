@@ -0,0 +1,30 @@
+package com.ageinghippy.recipeapi.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Run a cache eviction once the current transaction commits, or straight away outside a transaction.
+     * Evicting before the write is visible lets a concurrent read cache the old state again. The same goes
+     * for the in-memory search indexes.
+     *
+     * @param eviction
+     */
+    public static void run(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
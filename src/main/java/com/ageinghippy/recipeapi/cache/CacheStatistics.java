@@ -0,0 +1,65 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.LocalMapStats;
+import com.hazelcast.nearcache.NearCacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports how well each cache is doing on this member, from the statistics Hazelcast keeps for the map
+ * backing it. Map hits are only counted for entries this member owns, so on a cluster the ratio of a
+ * cache without a near cache is an approximation.
+ */
+@Component
+public class CacheStatistics {
+
+    @Autowired
+    HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    public List<CacheStats> getCacheStats() {
+        return cacheManager.getCacheNames().stream()
+                .sorted()
+                .map(this::statsFor)
+                .toList();
+    }
+
+    private CacheStats statsFor(String cacheName) {
+        LocalMapStats mapStats = hazelcastInstance.getMap(cacheName).getLocalMapStats();
+        NearCacheStats nearCacheStats = mapStats.getNearCacheStats();
+
+        long requests = mapStats.getGetOperationCount();
+        long hits = mapStats.getHits();
+        if (nearCacheStats != null) {
+            // near cache misses are the gets that reach the map
+            requests = nearCacheStats.getHits() + nearCacheStats.getMisses();
+            hits += nearCacheStats.getHits();
+        }
+
+        return new CacheStats(
+                cacheName,
+                mapStats.getOwnedEntryCount(),
+                requests,
+                hits,
+                nearCacheStats == null ? null : nearCacheStats.getOwnedEntryCount(),
+                nearCacheStats == null ? null : nearCacheStats.getHits(),
+                nearCacheStats == null ? null : nearCacheStats.getMisses(),
+                requests == 0 ? 0 : (double) hits / requests);
+    }
+
+    public record CacheStats(String name,
+                             long ownedEntries,
+                             long requests,
+                             long hits,
+                             Long nearCacheEntries,
+                             Long nearCacheHits,
+                             Long nearCacheMisses,
+                             double hitRatio) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.HotKey;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.repository.HotKeyRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts requests for single recipes and for the first pages of recipe listings, and periodically adds the
+ * counts to the persisted hot key list (see HotKey). Keys name the service call that fills the cache entry,
+ * for example {@code recipe|42} or {@code name|name:asc:20:|pasta}, so that CacheWarmUp can replay them.
+ */
+@Component
+public class HotKeyTracker {
+
+    public static final String RECIPE = "recipe";
+    public static final String ALL = "all";
+    public static final String NAME = "name";
+    public static final String AUTHOR = "author";
+    public static final String NAME_AND_DIFFICULTY = "name-difficulty";
+    public static final String RATING = "rating";
+
+    public static final String SEPARATOR = "|";
+
+    // bounds memory when requests probe many distinct keys, the hottest keys are seen long before that
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyTracker.class);
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    @Autowired
+    HotKeyRepo hotKeyRepo;
+
+    public void recordRecipe(Long id) {
+        record(RECIPE + SEPARATOR + id);
+    }
+
+    /**
+     * Record a request for a recipe listing. Only first pages are recorded, later pages depend on cursors
+     * that are not worth preloading.
+     *
+     * @param kind      one of ALL, NAME, AUTHOR, NAME_AND_DIFFICULTY or RATING
+     * @param page      the requested page
+     * @param arguments the arguments of the listing, in the order CacheWarmUp replays them
+     */
+    public void recordList(String kind, KeysetRequest page, Object... arguments) {
+        if (!page.isFirstPage()) {
+            return;
+        }
+        StringBuilder key = new StringBuilder(kind).append(SEPARATOR).append(page.cacheKey());
+        for (Object argument : arguments) {
+            key.append(SEPARATOR).append(argument);
+        }
+        record(key.toString());
+    }
+
+    // a key whose recipe or listing no longer exists, so it is not replayed on every startup until it decays
+    public void forget(String key) {
+        counts.remove(key);
+        hotKeyRepo.deleteById(key);
+    }
+
+    public List<String> getHottestKeys(int limit) {
+        return hotKeyRepo.findAllByOrderByHitsDesc(PageRequest.of(0, limit)).stream()
+                .map(HotKey::getCacheKey)
+                .toList();
+    }
+
+    /**
+     * Decay the persisted hits and add the requests counted since the last flush. With several nodes the
+     * decay runs once per node, the ranking stays the same. A key that fails to save is logged and dropped,
+     * the others are still saved.
+     */
+    @Scheduled(fixedDelayString = "${recipeapi.cache.hot-keys.flush-interval-ms:60000}")
+    @PreDestroy
+    public void flush() {
+        hotKeyRepo.halveHits();
+
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long hits = entry.getValue().sumThenReset();
+            if (hits == 0) {
+                counts.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            try {
+                hotKeyRepo.addHits(entry.getKey(), hits);
+            } catch (RuntimeException e) {
+                log.warn("Could not save hot key {}", entry.getKey(), e);
+                counts.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        hotKeyRepo.deleteCold();
+    }
+
+    private void record(String key) {
+        if (key.length() > HotKey.MAX_KEY_LENGTH) {
+            return;
+        }
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= MAX_TRACKED_KEYS) {
+                return;
+            }
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+}
@@ -0,0 +1,93 @@
+package com.ageinghippy.recipeapi.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache decorator registering list pages in the RecipeListCacheIndex once they are in the cache. Registered
+ * any earlier, a write evicting the entries it affects in between would find the entry but not the page, and
+ * the page put after it would never be evicted. Misses are reported to the index too, and pages read while a
+ * write evicted are not put at all.
+ */
+public class IndexedListCache implements Cache {
+
+    private final Cache delegate;
+
+    private final RecipeListCacheIndex recipeListCacheIndex;
+
+    public IndexedListCache(Cache delegate, RecipeListCacheIndex recipeListCacheIndex) {
+        this.delegate = delegate;
+        this.recipeListCacheIndex = recipeListCacheIndex;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!recipeListCacheIndex.isCurrent(key)) {
+            return;
+        }
+        delegate.put(key, value);
+        recipeListCacheIndex.register(key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (!recipeListCacheIndex.isCurrent(key)) {
+            return delegate.get(key);
+        }
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            recipeListCacheIndex.register(key);
+        }
+        return existing;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = delegate.get(key);
+        if (value == null) {
+            recipeListCacheIndex.missed(key);
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
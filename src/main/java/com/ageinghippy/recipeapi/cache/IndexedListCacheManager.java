@@ -0,0 +1,45 @@
+package com.ageinghippy.recipeapi.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the "getRecipes" cache of another cache manager in an {@link IndexedListCache}, leaving the others as they are.
+ */
+public class IndexedListCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final RecipeListCacheIndex recipeListCacheIndex;
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public IndexedListCacheManager(CacheManager delegate, RecipeListCacheIndex recipeListCacheIndex) {
+        this.delegate = delegate;
+        this.recipeListCacheIndex = recipeListCacheIndex;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache delegateCache = delegate.getCache(name);
+            if (delegateCache == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name, n -> RecipeListCacheIndex.CACHE_NAME.equals(n)
+                    ? new IndexedListCache(delegateCache, recipeListCacheIndex)
+                    : delegateCache);
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.diagnostics.Span;
+import com.ageinghippy.recipeapi.diagnostics.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache decorator counting hits, misses, puts and evictions, with the meter names Micrometer uses for the
+ * caches it instruments itself. A {@code sync = true} lookup is a miss only for the caller that ran the
+ * loader - callers served by a load in flight count as hits. Lookups are also spans of the request trace,
+ * tagged with their result.
+ */
+public class MeteredCache implements Cache {
+
+    private final Cache delegate;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter puts;
+
+    private final Counter evictions;
+
+    private final Counter clears;
+
+    public MeteredCache(Cache delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        String name = delegate.getName();
+        hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Lookups served from the cache").register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Lookups not found in the cache").register(meterRegistry);
+        puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Entries written to the cache").register(meterRegistry);
+        evictions = Counter.builder("cache.evictions").tag("cache", name).tag("scope", "key")
+                .description("Entries evicted by key").register(meterRegistry);
+        clears = Counter.builder("cache.evictions").tag("cache", name).tag("scope", "all")
+                .description("Times the whole cache was cleared").register(meterRegistry);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        try (Span span = Tracer.startSpan("cache", delegate.getName())) {
+            AtomicBoolean loaded = new AtomicBoolean();
+            T value = delegate.get(key, () -> {
+                loaded.set(true);
+                return valueLoader.call();
+            });
+            (loaded.get() ? misses : hits).increment();
+            span.tag("result", loaded.get() ? "miss" : "hit");
+            return value;
+        }
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        try (Span span = Tracer.startSpan("cache", delegate.getName())) {
+            return counted(delegate.get(key), span);
+        }
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        try (Span span = Tracer.startSpan("cache", delegate.getName())) {
+            return counted(delegate.get(key, type), span);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        puts.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            puts.increment();
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        evictions.increment();
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = delegate.evictIfPresent(key);
+        if (evicted) {
+            evictions.increment();
+        }
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        clears.increment();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = delegate.invalidate();
+        clears.increment();
+        return invalidated;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    private <T> T counted(T value, Span span) {
+        (value == null ? misses : hits).increment();
+        span.tag("result", value == null ? "miss" : "hit");
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ageinghippy.recipeapi.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps every cache of another cache manager in a {@link MeteredCache}.
+ */
+public class MeteredCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public MeteredCacheManager(CacheManager delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache delegateCache = delegate.getCache(name);
+            if (delegateCache == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name, n -> new MeteredCache(delegateCache, meterRegistry));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
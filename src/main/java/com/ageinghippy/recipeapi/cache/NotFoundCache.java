@@ -0,0 +1,120 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Short lived cache of lookups that found nothing, holding the message of the not found exception. Probes for
+ * ids, names or authors that do not exist are answered from here instead of the database until the entry
+ * expires (see hazelcast.yaml) or a write that could make the lookup succeed evicts it.
+ * <p>
+ * Name searches match any part of a name, so a write cannot list the searches it satisfies. Instead each
+ * cached name search holds the name generation it was cached in, and every recipe write starts a new one.
+ */
+@Component
+public class NotFoundCache {
+
+    public static final String CACHE_NAME = "notFound";
+
+    private static final String RECIPE_PREFIX = "recipe|";
+    private static final String RECIPE_NAME_PREFIX = "recipe-name|";
+    private static final String RECIPE_AUTHOR_PREFIX = "recipe-author|";
+    private static final String REVIEW_PREFIX = "review|";
+
+    // expires with the entries, any name search cached before it was set is then stale too
+    private static final String NAME_GENERATION_KEY = "recipe-name-generation";
+
+    @Autowired
+    CacheManager cacheManager;
+
+    public static String recipeKey(Long id) {
+        return RECIPE_PREFIX + id;
+    }
+
+    // name searches are case-insensitive, so are their keys
+    public static String recipeNameKey(String name) {
+        return RECIPE_NAME_PREFIX + name.toLowerCase(Locale.ROOT);
+    }
+
+    public static String recipeAuthorKey(String author) {
+        return RECIPE_AUTHOR_PREFIX + author;
+    }
+
+    public static String reviewKey(Long id) {
+        return REVIEW_PREFIX + id;
+    }
+
+    /**
+     * @param key
+     * @return {@code String} the message of the cached not found exception, null if the lookup is not cached
+     */
+    public String get(String key) {
+        return cache().get(key, String.class);
+    }
+
+    public void put(String key, String message) {
+        cache().put(key, message);
+    }
+
+    /**
+     * @param name
+     * @return {@code String} the message of the cached not found exception, null if the search is not cached or
+     * a recipe was written since
+     */
+    public String getNameSearch(String name) {
+        Cache cache = cache();
+        NameSearch search = cache.get(recipeNameKey(name), NameSearch.class);
+        if (search == null || !Objects.equals(search.generation(), cache.get(NAME_GENERATION_KEY, String.class))) {
+            return null;
+        }
+        return search.message();
+    }
+
+    public void putNameSearch(String name, String message) {
+        Cache cache = cache();
+        cache.put(recipeNameKey(name), new NameSearch(cache.get(NAME_GENERATION_KEY, String.class), message));
+    }
+
+    /**
+     * Evict every lookup the recipe would now satisfy - by its id, by its author and by any name it contains.
+     * Use after a recipe is created or updated.
+     */
+    public void evictFoundBy(Recipe recipe) {
+        Long id = recipe.getId();
+        String author = recipe.getAuthor();
+
+        AfterCommit.run(() -> {
+            Cache cache = cache();
+            cache.evict(recipeKey(id));
+            if (author != null) {
+                cache.evict(recipeAuthorKey(author));
+            }
+            cache.put(NAME_GENERATION_KEY, UUID.randomUUID().toString());
+        });
+    }
+
+    /**
+     * Evict the lookup of the review by id. Use after a review is created or updated.
+     */
+    public void evictReview(Long id) {
+        AfterCommit.run(() -> cache().evict(reviewKey(id)));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * A name search that found nothing, and the name generation it was cached in, null before the first.
+     */
+    record NameSearch(String generation, String message) implements Serializable {
+    }
+}
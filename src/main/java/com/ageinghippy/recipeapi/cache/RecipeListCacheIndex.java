@@ -0,0 +1,301 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.paging.RecipeSort;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryExpiredListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Reverse index over the "getRecipes" cache. Every cached list query is recorded with the ids of the
+ * recipes it holds and the query it ran (see RecipeListQuery), so that a write only evicts the list entries
+ * it could have changed instead of clearing the whole cache.
+ * <p>
+ * The index is a hazelcast map like the cache itself, so a write on any node finds the entries every other
+ * node cached, and the affected entries are found by the members holding them. Entries are registered once
+ * their page is in the cache (see IndexedListCache) and leave the index when the page leaves the cache,
+ * whether evicted by a write, expired or evicted for space.
+ * <p>
+ * A page read before a write commits may only be put in the cache after that write has evicted. Every write
+ * therefore bumps a cluster wide write generation before evicting, and a page is only cached if no write
+ * began evicting since the cache miss that started its query.
+ */
+@Component
+public class RecipeListCacheIndex {
+
+    public static final String CACHE_NAME = "getRecipes";
+
+    public static final String INDEX_NAME = "getRecipesIndex";
+
+    // a map holding the single write generation, as atomic longs need the enterprise CP subsystem
+    public static final String WRITE_GENERATION_NAME = "getRecipesWriteGeneration";
+
+    private static final String WRITE_GENERATION_KEY = "generation";
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeListCacheIndex.class);
+
+    // the cache miss this thread is about to run the query for
+    private final ThreadLocal<Miss> miss = new ThreadLocal<>();
+
+    // the list query this thread is running, registered when its page is put in the cache
+    private final ThreadLocal<PendingEntry> pending = new ThreadLocal<>();
+
+    private final AtomicLong writeCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    private IMap<String, IndexEntry> index;
+
+    private IMap<String, Long> writeGenerations;
+
+    @Autowired
+    HazelcastInstance hazelcastInstance;
+
+    // lazy, as the cache manager registers the pages it caches here
+    @Lazy
+    @Autowired
+    CacheManager cacheManager;
+
+    @PostConstruct
+    public void init() {
+        index = hazelcastInstance.getMap(INDEX_NAME);
+        writeGenerations = hazelcastInstance.getMap(WRITE_GENERATION_NAME);
+        // each member prunes the pages it owns, without the pages being sent with the events
+        hazelcastInstance.getMap(CACHE_NAME).addLocalEntryListener(new Pruner(), Predicates.alwaysTrue(), false);
+    }
+
+    /**
+     * Note a cache miss for {@code key}, before the list query filling it runs, so a write evicting while the
+     * query runs keeps its page out of the cache.
+     *
+     * @param key the "getRecipes" cache key just missed
+     */
+    public void missed(Object key) {
+        miss.set(new Miss(key, writeGeneration()));
+    }
+
+    /**
+     * Record the result of a list query that is about to be cached under {@code key}. The entry is
+     * registered once the page is in the cache, so an eviction running after the put finds it, and the page
+     * is not cached at all if a write evicted since the miss (see isCurrent).
+     * Entries selecting or ordering recipes by review rating are also evicted by review writes, which do not
+     * know the new rating of the recipe.
+     *
+     * @param key     the "getRecipes" cache key of the query
+     * @param query   the recipes the query selects
+     * @param page    the requested page
+     * @param recipes the query result
+     * @return {@code recipes}, unchanged
+     */
+    public KeysetPage<Recipe> track(String key, RecipeListQuery query, KeysetRequest page, KeysetPage<Recipe> recipes) {
+        boolean ratingDependent = query.dependsOnReviewRating() || page.sort() == RecipeSort.REVIEW_RATING;
+        Miss started = miss.get();
+        miss.remove();
+        // without a miss, as when called directly, only writes from here on count
+        long generation = started != null && started.key().equals(key) ? started.generation() : writeGeneration();
+        pending.set(new PendingEntry(key, new IndexEntry(idsOf(recipes.content()), query, ratingDependent), generation));
+        return recipes;
+    }
+
+    /**
+     * Check the page this thread is about to put under {@code key} is still current, dropping it if a write
+     * evicted since its query started, as the page may predate that write.
+     *
+     * @param key the "getRecipes" cache key about to be written
+     * @return {@code boolean} false if the page must not be cached
+     */
+    public boolean isCurrent(Object key) {
+        PendingEntry entry = pending.get();
+        if (entry == null || !entry.key().equals(key) || writeGeneration() == entry.generation()) {
+            return true;
+        }
+        pending.remove();
+        discardedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Register the entry tracked by this thread for the key, now its page has been put in the cache.
+     *
+     * @param key the "getRecipes" cache key just written
+     */
+    public void register(Object key) {
+        PendingEntry entry = pending.get();
+        if (entry != null && entry.key().equals(key)) {
+            pending.remove();
+            index.set(entry.key(), entry.entry());
+            // a write that began evicting between isCurrent and the line above may have missed the entry,
+            // otherwise any later write finds it
+            if (writeGeneration() != entry.generation()) {
+                index.delete(entry.key());
+                Cache cache = cacheManager.getCache(CACHE_NAME);
+                if (cache != null) {
+                    cache.evict(entry.key());
+                }
+                discardedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Evict every entry holding the recipe or whose query would now select it.
+     * Use after a recipe is created or updated.
+     */
+    public void evictAffectedBy(Recipe recipe) {
+        evictWhere("write to recipe " + recipe.getId(), new AffectedBy(RecipeListQuery.Candidate.of(recipe)));
+    }
+
+    /**
+     * Evict every entry holding the recipe. Use after a recipe is deleted.
+     */
+    public void evictContaining(Long recipeId) {
+        evictWhere("delete of recipe " + recipeId, new Containing(recipeId, false));
+    }
+
+    /**
+     * Evict every entry holding the recipe and every query selecting or ordering by review rating.
+     * Use after a review write where the new rating of the recipe is not known.
+     */
+    public void evictRatingQueriesAndContaining(Long recipeId) {
+        evictWhere("review write on recipe " + recipeId, new Containing(recipeId, true));
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    // pages read while a write evicted, and so not cached
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    public int getTrackedEntryCount() {
+        return index.size();
+    }
+
+    private void evictWhere(String write, Predicate<String, IndexEntry> affected) {
+        AfterCommit.run(() -> evictNow(write, affected));
+    }
+
+    private void evictNow(String write, Predicate<String, IndexEntry> affected) {
+        // before looking for entries, so pages put from here on see the write (see isCurrent and register)
+        writeGenerations.executeOnKey(WRITE_GENERATION_KEY, new IncrementGeneration());
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        Set<String> keys = index.keySet(affected);
+        int evicted = 0;
+
+        for (String key : keys) {
+            index.delete(key);
+            if (cache != null && cache.evictIfPresent(key)) {
+                evicted++;
+            }
+        }
+
+        writeCount.incrementAndGet();
+        evictionCount.addAndGet(evicted);
+        log.info("{} evicted {} {} entries ({} evictions over {} writes on this node)",
+                write, evicted, CACHE_NAME, evictionCount.get(), writeCount.get());
+    }
+
+    private long writeGeneration() {
+        Long generation = writeGenerations.get(WRITE_GENERATION_KEY);
+        return generation == null ? 0 : generation;
+    }
+
+    private static Set<Long> idsOf(List<Recipe> recipes) {
+        return recipes.stream()
+                .map(Recipe::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    record IndexEntry(Set<Long> ids, RecipeListQuery query, boolean ratingDependent) implements Serializable {
+    }
+
+    private record Miss(Object key, long generation) {
+    }
+
+    private record PendingEntry(String key, IndexEntry entry, long generation) {
+    }
+
+    // run on the member holding the write generation
+    record IncrementGeneration() implements EntryProcessor<String, Long, Long> {
+        @Override
+        public Long process(Map.Entry<String, Long> entry) {
+            long generation = entry.getValue() == null ? 1 : entry.getValue() + 1;
+            entry.setValue(generation);
+            return generation;
+        }
+    }
+
+    // run on the members holding the index entries
+    record AffectedBy(RecipeListQuery.Candidate recipe) implements Predicate<String, IndexEntry> {
+        @Override
+        public boolean apply(Map.Entry<String, IndexEntry> entry) {
+            return entry.getValue().ids().contains(recipe.id()) || entry.getValue().query().selects(recipe);
+        }
+    }
+
+    record Containing(Long recipeId, boolean orRatingDependent) implements Predicate<String, IndexEntry> {
+        @Override
+        public boolean apply(Map.Entry<String, IndexEntry> entry) {
+            return (orRatingDependent && entry.getValue().ratingDependent()) || entry.getValue().ids().contains(recipeId);
+        }
+    }
+
+    private class Pruner implements EntryRemovedListener<Object, Object>, EntryEvictedListener<Object, Object>,
+            EntryExpiredListener<Object, Object> {
+
+        @Override
+        public void entryRemoved(EntryEvent<Object, Object> event) {
+            prune(event.getKey());
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<Object, Object> event) {
+            prune(event.getKey());
+        }
+
+        @Override
+        public void entryExpired(EntryEvent<Object, Object> event) {
+            prune(event.getKey());
+        }
+
+        // events arrive asynchronously, so the page may have been cached and registered again since
+        private void prune(Object key) {
+            if (key instanceof String indexKey && !hazelcastInstance.getMap(CACHE_NAME).containsKey(indexKey)) {
+                index.delete(indexKey);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.Ingredient;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.search.RecipeIngredientIndex;
+import com.ageinghippy.recipeapi.utils.Utils;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Which recipes a cached list query selects. Kept in the RecipeListCacheIndex alongside the cache entry, so it
+ * is sent to the member holding the entry and checked there against the recipes that writes change.
+ */
+public sealed interface RecipeListQuery extends Serializable {
+
+    /**
+     * @param recipe the recipe as written
+     * @return {@code boolean} true if the query would select the recipe
+     */
+    boolean selects(Candidate recipe);
+
+    /**
+     * @return {@code boolean} true if the selection depends on the review rating, which review writes change
+     */
+    default boolean dependsOnReviewRating() {
+        return false;
+    }
+
+    record All() implements RecipeListQuery {
+        @Override
+        public boolean selects(Candidate recipe) {
+            return true;
+        }
+    }
+
+    record ByName(String name) implements RecipeListQuery {
+        @Override
+        public boolean selects(Candidate recipe) {
+            return Utils.containsIgnoreCase(recipe.name(), name);
+        }
+    }
+
+    record ByAuthor(String author) implements RecipeListQuery {
+        @Override
+        public boolean selects(Candidate recipe) {
+            return author.equals(recipe.author());
+        }
+    }
+
+    record ByNameAndMaximumDifficulty(String name, int maximumDifficultyRating) implements RecipeListQuery {
+        @Override
+        public boolean selects(Candidate recipe) {
+            return Utils.containsIgnoreCase(recipe.name(), name)
+                    && recipe.difficultyRating() != null && recipe.difficultyRating() <= maximumDifficultyRating;
+        }
+    }
+
+    record ByMinimumReviewRating(int minimumReviewRating) implements RecipeListQuery {
+        @Override
+        public boolean selects(Candidate recipe) {
+            return recipe.reviewRating() != null && recipe.reviewRating() >= minimumReviewRating;
+        }
+
+        @Override
+        public boolean dependsOnReviewRating() {
+            return true;
+        }
+    }
+
+    record ByIngredients(List<String> include, List<String> exclude) implements RecipeListQuery {
+
+        public ByIngredients {
+            include = List.copyOf(include);
+            exclude = List.copyOf(exclude);
+        }
+
+        @Override
+        public boolean selects(Candidate recipe) {
+            return RecipeIngredientIndex.matches(recipe.ingredientNames(), include, exclude);
+        }
+    }
+
+    /**
+     * The fields of a written recipe that list queries select on, small enough to send to every member.
+     */
+    record Candidate(Long id, String name, String author, Integer difficultyRating, Integer reviewRating,
+                     List<String> ingredientNames) implements Serializable {
+
+        public static Candidate of(Recipe recipe) {
+            List<String> ingredientNames = recipe.getIngredients() == null ? List.of()
+                    : recipe.getIngredients().stream().map(Ingredient::getName).filter(Objects::nonNull).toList();
+            return new Candidate(recipe.getId(), recipe.getName(), recipe.getAuthor(), recipe.getDifficultyRating(),
+                    recipe.getReviewRating(), ingredientNames);
+        }
+    }
+}
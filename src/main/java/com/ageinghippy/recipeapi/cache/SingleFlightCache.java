@@ -0,0 +1,159 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.hazelcast.map.IMap;
+import org.springframework.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache decorator coalescing concurrent misses on the same key, for {@code @Cacheable(sync = true)}.
+ * Only one caller per key per node runs the loader and the others wait for its result. When cluster wide,
+ * the loader also runs under the Hazelcast lock of the key, so only one node loads it from the database.
+ */
+public class SingleFlightCache implements Cache {
+
+    private final Cache delegate;
+
+    private final boolean clusterWide;
+
+    private final long lockTimeoutMillis;
+
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(Cache delegate, boolean clusterWide, long lockTimeoutMillis) {
+        this.delegate = delegate;
+        this.clusterWide = clusterWide && delegate.getNativeCache() instanceof IMap;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return (T) await(leader);
+        }
+
+        try {
+            Object value = clusterWide ? loadUnderClusterLock(key, valueLoader) : loadIfAbsent(key, valueLoader);
+            flight.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object loadUnderClusterLock(Object key, Callable<?> valueLoader) {
+        IMap<Object, Object> map = (IMap<Object, Object>) delegate.getNativeCache();
+        boolean locked;
+        try {
+            locked = map.tryLock(key, lockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+
+        // a node that waited too long loads anyway rather than failing the request
+        try {
+            return loadIfAbsent(key, valueLoader);
+        } finally {
+            if (locked) {
+                map.unlock(key);
+            }
+        }
+    }
+
+    private Object loadIfAbsent(Object key, Callable<?> valueLoader) {
+        // the previous leader may have finished between the first lookup and this one becoming leader
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return cached.get();
+        }
+
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        delegate.put(key, value);
+        return value;
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            // the leader's exception, so every caller fails the way it would have loading on its own
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ageinghippy.recipeapi.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps every cache of another cache manager in a {@link SingleFlightCache}.
+ */
+public class SingleFlightCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final boolean clusterWide;
+
+    private final long lockTimeoutMillis;
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public SingleFlightCacheManager(CacheManager delegate, boolean clusterWide, long lockTimeoutMillis) {
+        this.delegate = delegate;
+        this.clusterWide = clusterWide;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache delegateCache = delegate.getCache(name);
+            if (delegateCache == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name,
+                    n -> new SingleFlightCache(delegateCache, clusterWide, lockTimeoutMillis));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
@@ -0,0 +1,17 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+
+/**
+ * The author of a cached recipe or review. Only the username is cached, so credentials, authorities
+ * and user meta never leave the database and are null on an author read back from the cache.
+ */
+final class CachedAuthor {
+
+    private CachedAuthor() {
+    }
+
+    static CustomUserDetails of(String username) {
+        return username == null ? null : CustomUserDetails.builder().username(username).build();
+    }
+}
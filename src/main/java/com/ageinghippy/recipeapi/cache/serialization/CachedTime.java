@@ -0,0 +1,26 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Instants are cached as UTC timestamps, compact serialization has no instant type.
+ */
+final class CachedTime {
+
+    private CachedTime() {
+    }
+
+    static Instant read(CompactReader reader, String fieldName) {
+        OffsetDateTime timestamp = reader.readTimestampWithTimezone(fieldName);
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    static void write(CompactWriter writer, String fieldName, Instant instant) {
+        writer.writeTimestampWithTimezone(fieldName, instant == null ? null : instant.atOffset(ZoneOffset.UTC));
+    }
+}
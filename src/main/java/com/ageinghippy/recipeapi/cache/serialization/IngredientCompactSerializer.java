@@ -0,0 +1,37 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.model.Ingredient;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+public class IngredientCompactSerializer implements CompactSerializer<Ingredient> {
+
+    @Override
+    public Ingredient read(CompactReader reader) {
+        return Ingredient.builder()
+                .id(reader.readNullableInt64("id"))
+                .name(reader.readString("name"))
+                .amount(reader.readString("amount"))
+                .state(reader.readString("state"))
+                .build();
+    }
+
+    @Override
+    public void write(CompactWriter writer, Ingredient ingredient) {
+        writer.writeNullableInt64("id", ingredient.getId());
+        writer.writeString("name", ingredient.getName());
+        writer.writeString("amount", ingredient.getAmount());
+        writer.writeString("state", ingredient.getState());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "ingredient";
+    }
+
+    @Override
+    public Class<Ingredient> getCompactClass() {
+        return Ingredient.class;
+    }
+}
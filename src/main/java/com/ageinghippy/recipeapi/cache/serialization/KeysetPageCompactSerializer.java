@@ -0,0 +1,39 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import java.util.List;
+
+/**
+ * Cache representation of a page of recipes or reviews. Without it the page would be written with java
+ * serialization, which serializes the entities on it the same way rather than with their compact serializers.
+ */
+public class KeysetPageCompactSerializer implements CompactSerializer<KeysetPage<?>> {
+
+    @Override
+    public KeysetPage<?> read(CompactReader reader) {
+        return new KeysetPage<>(
+                List.of(reader.readArrayOfCompact("content", Object.class)),
+                reader.readString("nextCursor"));
+    }
+
+    @Override
+    public void write(CompactWriter writer, KeysetPage<?> page) {
+        writer.writeArrayOfCompact("content", page.content().toArray());
+        writer.writeString("nextCursor", page.nextCursor());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "keysetPage";
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Class<KeysetPage<?>> getCompactClass() {
+        return (Class) KeysetPage.class;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.model.Ingredient;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.model.Review;
+import com.ageinghippy.recipeapi.model.Step;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Cache representation of a recipe with its ingredients, steps and reviews. The author is kept as a
+ * username only (see {@link CachedAuthor}), which is all a recipe response renders.
+ */
+public class RecipeCompactSerializer implements CompactSerializer<Recipe> {
+
+    @Override
+    public Recipe read(CompactReader reader) {
+        Recipe recipe = Recipe.builder()
+                .id(reader.readNullableInt64("id"))
+                .name(reader.readString("name"))
+                .minutesToMake(reader.readNullableInt32("minutesToMake"))
+                .difficultyRating(reader.readNullableInt32("difficultyRating"))
+                .user(CachedAuthor.of(reader.readString("author")))
+                .reviewRating(reader.readNullableInt32("reviewRating"))
+                .reviewCount(reader.readNullableInt32("reviewCount"))
+                .ratingSum(reader.readNullableInt32("ratingSum"))
+                .version(reader.readNullableInt64("version"))
+                .updatedAt(CachedTime.read(reader, "updatedAt"))
+                .ingredients(toList(reader.readArrayOfCompact("ingredients", Ingredient.class)))
+                .steps(toList(reader.readArrayOfCompact("steps", Step.class)))
+                .reviews(toList(reader.readArrayOfCompact("reviews", Review.class)))
+                .build();
+
+        if (recipe.getReviews() != null) {
+            recipe.getReviews().forEach(review -> review.setRecipe(recipe));
+        }
+        return recipe;
+    }
+
+    @Override
+    public void write(CompactWriter writer, Recipe recipe) {
+        writer.writeNullableInt64("id", recipe.getId());
+        writer.writeString("name", recipe.getName());
+        writer.writeNullableInt32("minutesToMake", recipe.getMinutesToMake());
+        writer.writeNullableInt32("difficultyRating", recipe.getDifficultyRating());
+        writer.writeString("author", recipe.getAuthor());
+        writer.writeNullableInt32("reviewRating", recipe.getReviewRating());
+        writer.writeNullableInt32("reviewCount", recipe.getReviewCount());
+        writer.writeNullableInt32("ratingSum", recipe.getRatingSum());
+        writer.writeNullableInt64("version", recipe.getVersion());
+        CachedTime.write(writer, "updatedAt", recipe.getUpdatedAt());
+        writer.writeArrayOfCompact("ingredients", toArray(recipe.getIngredients(), Ingredient[]::new));
+        writer.writeArrayOfCompact("steps", toArray(recipe.getSteps(), Step[]::new));
+        writer.writeArrayOfCompact("reviews", toArray(recipe.getReviews(), Review[]::new));
+    }
+
+    @Override
+    public String getTypeName() {
+        return "recipe";
+    }
+
+    @Override
+    public Class<Recipe> getCompactClass() {
+        return Recipe.class;
+    }
+
+    private static <T> T[] toArray(List<T> list, IntFunction<T[]> newArray) {
+        return list == null ? null : list.toArray(newArray);
+    }
+
+    private static <T> List<T> toList(T[] array) {
+        // mutable, as the collections of a recipe loaded from the database are
+        return array == null ? null : new ArrayList<>(Arrays.asList(array));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.model.Review;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+/**
+ * Cache representation of a review. The recipe is kept as its id only, reviews read as part of a
+ * recipe are pointed back at that recipe by {@link RecipeCompactSerializer}.
+ */
+public class ReviewCompactSerializer implements CompactSerializer<Review> {
+
+    @Override
+    public Review read(CompactReader reader) {
+        Long recipeId = reader.readNullableInt64("recipeId");
+        return Review.builder()
+                .id(reader.readNullableInt64("id"))
+                .user(CachedAuthor.of(reader.readString("author")))
+                .recipe(recipeId == null ? null : Recipe.builder().id(recipeId).build())
+                .rating(reader.readNullableInt32("rating"))
+                .description(reader.readString("description"))
+                .version(reader.readNullableInt64("version"))
+                .updatedAt(CachedTime.read(reader, "updatedAt"))
+                .build();
+    }
+
+    @Override
+    public void write(CompactWriter writer, Review review) {
+        writer.writeNullableInt64("id", review.getId());
+        writer.writeString("author", review.getAuthor());
+        // getId on a lazy recipe reference does not initialize it
+        writer.writeNullableInt64("recipeId", review.getRecipe() == null ? null : review.getRecipe().getId());
+        writer.writeNullableInt32("rating", review.getRating());
+        writer.writeString("description", review.getDescription());
+        writer.writeNullableInt64("version", review.getVersion());
+        CachedTime.write(writer, "updatedAt", review.getUpdatedAt());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "review";
+    }
+
+    @Override
+    public Class<Review> getCompactClass() {
+        return Review.class;
+    }
+}
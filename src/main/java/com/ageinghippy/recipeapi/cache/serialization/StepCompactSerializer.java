@@ -0,0 +1,35 @@
+package com.ageinghippy.recipeapi.cache.serialization;
+
+import com.ageinghippy.recipeapi.model.Step;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+public class StepCompactSerializer implements CompactSerializer<Step> {
+
+    @Override
+    public Step read(CompactReader reader) {
+        return Step.builder()
+                .id(reader.readNullableInt64("id"))
+                .stepNumber(reader.readNullableInt32("stepNumber"))
+                .description(reader.readString("description"))
+                .build();
+    }
+
+    @Override
+    public void write(CompactWriter writer, Step step) {
+        writer.writeNullableInt64("id", step.getId());
+        writer.writeNullableInt32("stepNumber", step.getStepNumber());
+        writer.writeString("description", step.getDescription());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "step";
+    }
+
+    @Override
+    public Class<Step> getCompactClass() {
+        return Step.class;
+    }
+}
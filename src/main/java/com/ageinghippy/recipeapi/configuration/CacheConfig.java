@@ -0,0 +1,32 @@
+package com.ageinghippy.recipeapi.configuration;
+
+import com.ageinghippy.recipeapi.cache.IndexedListCacheManager;
+import com.ageinghippy.recipeapi.cache.MeteredCacheManager;
+import com.ageinghippy.recipeapi.cache.RecipeListCacheIndex;
+import com.ageinghippy.recipeapi.cache.SingleFlightCacheManager;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    // the hazelcast backed caches Spring Boot would configure, with concurrent misses on a key coalesced,
+    // cached list pages registered in their index and hits, misses, puts and evictions counted per cache
+    @Bean
+    public CacheManager cacheManager(HazelcastInstance hazelcastInstance,
+                                     MeterRegistry meterRegistry,
+                                     RecipeListCacheIndex recipeListCacheIndex,
+                                     @Value("${recipeapi.cache.single-flight.cluster-wide:false}") boolean clusterWide,
+                                     @Value("${recipeapi.cache.single-flight.lock-timeout-ms:5000}") long lockTimeoutMillis) {
+        return new MeteredCacheManager(
+                new IndexedListCacheManager(
+                        new SingleFlightCacheManager(new HazelcastCacheManager(hazelcastInstance), clusterWide, lockTimeoutMillis),
+                        recipeListCacheIndex),
+                meterRegistry);
+    }
+}
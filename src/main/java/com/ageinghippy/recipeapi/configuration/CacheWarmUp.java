@@ -0,0 +1,144 @@
+package com.ageinghippy.recipeapi.configuration;
+
+import com.ageinghippy.recipeapi.cache.HotKeyTracker;
+import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.service.RecipeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preloads the hottest recipes and recipe listings (see HotKeyTracker) into the caches after the test data is
+ * loaded. Command line runners complete before the application reports that it is ready to accept traffic,
+ * so a new node only takes requests once it is warm. A node joining a warm cluster finds most entries in the
+ * cluster already and only fills its near cache.
+ */
+@Component
+@Order(4)
+public class CacheWarmUp implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmUp.class);
+
+    @Autowired
+    HotKeyTracker hotKeyTracker;
+
+    @Autowired
+    RecipeService recipeService;
+
+    @Value("${recipeapi.cache.warm-up.enabled:true}")
+    boolean enabled;
+
+    @Value("${recipeapi.cache.warm-up.max-keys:1000}")
+    int maxKeys;
+
+    @Value("${recipeapi.cache.warm-up.batch-size:50}")
+    int batchSize;
+
+    @Value("${recipeapi.cache.warm-up.parallelism:4}")
+    int parallelism;
+
+    @Value("${recipeapi.cache.warm-up.timeout-seconds:60}")
+    long timeoutSeconds;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    public int warmUp() throws InterruptedException {
+        List<String> keys = hotKeyTracker.getHottestKeys(maxKeys);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        log.info("Starting cache warm up - {} hot keys", keys.size());
+        long start = System.nanoTime();
+        AtomicInteger warmed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                batches.add(executor.submit(() -> batch.forEach(key -> {
+                    if (warm(key)) {
+                        warmed.incrementAndGet();
+                    }
+                })));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            for (Future<?> batch : batches) {
+                try {
+                    batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // better to start with a partly warm cache than not at all
+                    log.warn("Cache warm up timed out after {}s", timeoutSeconds);
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("Cache warm up batch failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Finished cache warm up - {} of {} keys loaded in {}ms", warmed.get(), keys.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return warmed.get();
+    }
+
+    // replays the service call a key was recorded for, going through the caching proxy so the result is cached.
+    // Runs without a request, so nothing the cached methods do may depend on one
+    private boolean warm(String key) {
+        String[] parts = key.split("\\" + HotKeyTracker.SEPARATOR, 3);
+        try {
+            switch (parts[0]) {
+                case HotKeyTracker.RECIPE -> recipeService.getRecipeById(Long.valueOf(parts[1]));
+                case HotKeyTracker.ALL -> recipeService.getAllRecipes(page(parts[1]));
+                case HotKeyTracker.NAME -> recipeService.getRecipesByName(parts[2], page(parts[1]));
+                case HotKeyTracker.AUTHOR -> recipeService.getRecipesByUsername(parts[2], page(parts[1]));
+                case HotKeyTracker.RATING ->
+                        recipeService.getAllRecipesByMinimumReviewRating(Integer.parseInt(parts[2]), page(parts[1]));
+                case HotKeyTracker.NAME_AND_DIFFICULTY -> {
+                    String[] arguments = parts[2].split("\\" + HotKeyTracker.SEPARATOR, 2);
+                    recipeService.getRecipesByNameAndMaximumDifficulty(
+                            arguments[1], Integer.parseInt(arguments[0]), page(parts[1]));
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (NoSuchRecipeException e) {
+            // deleted recipes and listings that no longer match anything are expected, and not worth warming again
+            log.debug("Dropping hot key {} - {}", key, e.getMessage());
+            hotKeyTracker.forget(key);
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Could not warm hot key {}", key, e);
+            return false;
+        }
+    }
+
+    // the cache key of a first page - sort:direction:limit: with an empty cursor
+    private static KeysetRequest page(String cacheKey) {
+        String[] parts = cacheKey.split(":");
+        return KeysetRequest.of(parts[0], parts[1], null, Integer.valueOf(parts[2]));
+    }
+}
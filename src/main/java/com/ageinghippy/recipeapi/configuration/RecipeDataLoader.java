@@ -6,6 +6,7 @@ import com.ageinghippy.recipeapi.repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
@@ -13,6 +14,7 @@ import java.util.List;
 
 @Component
 @Profile("test")
+@Order(2)
 public class RecipeDataLoader implements CommandLineRunner {
 
     @Autowired
@@ -24,10 +26,13 @@ public class RecipeDataLoader implements CommandLineRunner {
     @Autowired
     PasswordEncoder passwordEncoder;
 
+    @Autowired
+    ReviewAggregateBackfill reviewAggregateBackfill;
+
     @Override
     public void run(String... args) throws Exception {
         System.out.println("STARTING WITH TEST DATABASE SETUP");
-        if (recipeRepo.findAll().isEmpty()) {
+        if (recipeRepo.count() == 0) {
 
             //users
 
@@ -107,6 +112,7 @@ public class RecipeDataLoader implements CommandLineRunner {
                     .reviews(List.of(review))
                     .user(userBob)
                     .build();
+            review.setRecipe(recipe1);
 
             recipeRepo.save(recipe1);
 
@@ -170,8 +176,12 @@ public class RecipeDataLoader implements CommandLineRunner {
                             .build()))
                     .user(userBill)
                     .build();
+            recipe4.getReviews().forEach(r -> r.setRecipe(recipe4));
 
             recipeRepo.save(recipe4);
+
+            // seeded reviews are cascaded in with their recipes, bypassing ReviewService
+            reviewAggregateBackfill.backfill();
             System.out.println("FINISHED TEST DATABASE SETUP");
         }
     }
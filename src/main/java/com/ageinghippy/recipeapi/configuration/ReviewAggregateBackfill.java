@@ -0,0 +1,50 @@
+package com.ageinghippy.recipeapi.configuration;
+
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off job recalculating the persisted review aggregates on recipe (review_count, rating_sum and
+ * review_rating) from the review table. Run it once after the columns are introduced by starting the
+ * application with {@code recipeapi.review-aggregates.backfill=true}.
+ */
+@Component
+@Order(1)
+public class ReviewAggregateBackfill implements CommandLineRunner {
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Value("${recipeapi.review-aggregates.backfill:false}")
+    boolean backfillOnStartup;
+
+    @Value("${recipeapi.review-aggregates.backfill-batch-size:1000}")
+    int batchSize;
+
+    @Override
+    public void run(String... args) {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    public int backfill() {
+        Long minimumId = recipeRepo.findMinimumId();
+        Long maximumId = recipeRepo.findMaximumId();
+        int updated = 0;
+
+        if (minimumId != null) {
+            System.out.println("STARTING REVIEW AGGREGATE BACKFILL");
+            // each batch commits on its own so the job never holds locks over the whole table
+            for (long fromId = minimumId; fromId <= maximumId; fromId += batchSize) {
+                updated += recipeRepo.backfillReviewAggregates(fromId, fromId + batchSize - 1);
+            }
+            System.out.println("FINISHED REVIEW AGGREGATE BACKFILL - " + updated + " recipes updated");
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ageinghippy.recipeapi.configuration;
+
+import com.ageinghippy.recipeapi.search.RecipeIngredientIndex;
+import com.ageinghippy.recipeapi.search.RecipeNameIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the in-memory search indexes from the database once any test or generated data is loaded, and before
+ * the cache warm up, so the warmed listings are already served from them. The indexes are rebuilt periodically
+ * after that, repairing any change a node missed.
+ */
+@Component
+@Order(3)
+public class SearchIndexLoader implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexLoader.class);
+
+    @Autowired
+    RecipeNameIndex recipeNameIndex;
+
+    @Autowired
+    RecipeIngredientIndex recipeIngredientIndex;
+
+    @Override
+    public void run(String... args) {
+        rebuild("Building");
+    }
+
+    @Scheduled(initialDelayString = "${recipeapi.search.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${recipeapi.search.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild("Rebuilding");
+        } catch (RuntimeException e) {
+            // the current indexes keep serving until the next rebuild
+            log.warn("Could not rebuild the search indexes", e);
+        }
+    }
+
+    private void rebuild(String action) {
+        log.info("{} search indexes", action);
+        long start = System.nanoTime();
+        int names = recipeNameIndex.rebuild();
+        int ingredients = recipeIngredientIndex.rebuild();
+        log.info("{} search indexes finished - {} recipe names and the ingredients of {} recipes indexed in {}ms",
+                action, names, ingredients, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
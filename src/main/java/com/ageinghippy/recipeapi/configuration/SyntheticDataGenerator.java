@@ -0,0 +1,333 @@
+package com.ageinghippy.recipeapi.configuration;
+
+import com.ageinghippy.recipeapi.model.*;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills an empty database with a large synthetic dataset for benchmarking, when started with the generate
+ * profile. Popularity is skewed the way real traffic is: a few users write most recipes and reviews, a few
+ * recipes get most reviews and a few ingredients appear in most recipes, all following Zipf distributions.
+ * Batches are inserted in parallel, each in its own transaction, and each batch draws from a random seeded
+ * with its own index. Batches persist their rows, which is when ids are assigned, strictly in batch order and
+ * only flush them in parallel, so on a freshly created schema the same seed always produces the same data
+ * behind the same ids.
+ */
+@Component
+@Profile("generate")
+@Order(2)
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final String[] NAME_WORDS = {"chicken", "beef", "pork", "lamb", "tofu", "salmon", "prawn",
+            "pasta", "rice", "noodle", "curry", "soup", "salad", "stew", "pie", "cake", "bread", "roast", "bake",
+            "spicy", "sweet", "smoky", "lemon", "garlic", "ginger", "tomato", "cheese", "mushroom", "chocolate",
+            "honey", "herb", "crispy", "creamy", "quick", "classic", "summer", "winter", "grandma's", "easy", "vegan"};
+
+    private static final String[] INGREDIENTS = {"salt", "pepper", "olive oil", "butter", "garlic", "onion",
+            "flour", "sugar", "egg", "milk", "water", "lemon", "tomato", "rice", "chicken", "beef", "cheese",
+            "cream", "ginger", "chilli", "carrot", "potato", "basil", "parsley", "thyme", "cumin", "paprika",
+            "soy sauce", "honey", "vinegar", "mushroom", "spinach", "pasta", "bread", "yoghurt", "coriander",
+            "cinnamon", "vanilla", "chocolate", "baking powder", "stock", "coconut milk", "lime", "mint",
+            "peas", "beans", "lentils", "bacon", "salmon", "prawns"};
+
+    private static final String[] STATES = {"chopped", "diced", "sliced", "grated", "whole", "dry", "wet", "melted", "fresh"};
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ReviewAggregateBackfill reviewAggregateBackfill;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${recipeapi.generator.seed:42}")
+    long seed;
+
+    @Value("${recipeapi.generator.users:10000}")
+    int users;
+
+    @Value("${recipeapi.generator.recipes:1000000}")
+    int recipes;
+
+    @Value("${recipeapi.generator.max-reviews-per-recipe:200}")
+    int maxReviewsPerRecipe;
+
+    @Value("${recipeapi.generator.max-ingredients:25}")
+    int maxIngredients;
+
+    @Value("${recipeapi.generator.max-steps:20}")
+    int maxSteps;
+
+    @Value("${recipeapi.generator.zipf-exponent:1.1}")
+    double zipfExponent;
+
+    @Value("${recipeapi.generator.batch-size:1000}")
+    int batchSize;
+
+    @Value("${recipeapi.generator.parallelism:8}")
+    int parallelism;
+
+    @Override
+    public void run(String... args) throws Exception {
+        // a count rather than loading the table to find out whether it is empty
+        if (recipeRepo.count() > 0) {
+            System.out.println("SKIPPING SYNTHETIC DATA GENERATION - THE DATABASE IS NOT EMPTY");
+            return;
+        }
+
+        System.out.println("STARTING SYNTHETIC DATA GENERATION - " + users + " users, " + recipes + " recipes, seed " + seed);
+        long start = System.nanoTime();
+
+        // BCrypt is slow on purpose, every generated user gets the same hash of "password"
+        String passwordHash = passwordEncoder.encode("password");
+        // indexed by the number in the username, whatever order the batches were inserted in, so popularity
+        // ranks always go to the same users
+        long[] userIdsByRank = new long[users];
+        runBatches("users", users, (batch, turns) -> {
+            List<Long> ids = insertUsers(batch, turns, passwordHash);
+            for (int i = 0; i < ids.size(); i++) {
+                userIdsByRank[batch * batchSize + i] = ids.get(i);
+            }
+        });
+
+        Zipf userPopularity = new Zipf(userIdsByRank.length, zipfExponent);
+        Zipf reviewCounts = new Zipf(maxReviewsPerRecipe + 1, zipfExponent);
+        Zipf ingredientPopularity = new Zipf(INGREDIENTS.length, zipfExponent);
+        AtomicLong reviews = new AtomicLong();
+        runBatches("recipes", recipes, (batch, turns) ->
+                reviews.addAndGet(insertRecipes(batch, turns, userIdsByRank, userPopularity, reviewCounts, ingredientPopularity)));
+
+        // reviews are cascaded in with their recipes, bypassing ReviewService
+        reviewAggregateBackfill.backfill();
+        System.out.println("FINISHED SYNTHETIC DATA GENERATION - " + users + " users, " + recipes + " recipes, "
+                + reviews.get() + " reviews in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + "s");
+    }
+
+    private List<Long> insertUsers(int batch, Turns turns, String passwordHash) {
+        Random random = random("users", batch);
+        int from = batch * batchSize;
+        return inTransaction(() -> {
+            List<CustomUserDetails> inserted = new ArrayList<>();
+            for (int i = from; i < Math.min(from + batchSize, users); i++) {
+                String username = "user" + i;
+                inserted.add(CustomUserDetails.builder()
+                        .username(username)
+                        .password(passwordHash)
+                        .authorities(new ArrayList<>(List.of(new Role(random.nextInt(1000) == 0
+                                ? Role.Roles.ROLE_ADMIN : Role.Roles.ROLE_USER))))
+                        .userMeta(UserMeta.builder().name(username).email(username + "@example.com").build())
+                        .build());
+            }
+            persistInTurn(batch, turns, inserted);
+            entityManager.flush();
+            return inserted.stream().map(CustomUserDetails::getId).toList();
+        });
+    }
+
+    private long insertRecipes(int batch, Turns turns, long[] userIdsByRank, Zipf userPopularity, Zipf reviewCounts,
+                               Zipf ingredientPopularity) {
+        Random random = random("recipes", batch);
+        int from = batch * batchSize;
+        return inTransaction(() -> {
+            List<Recipe> inserted = new ArrayList<>();
+            long reviews = 0;
+            for (int i = from; i < Math.min(from + batchSize, recipes); i++) {
+                long authorId = userIdsByRank[userPopularity.sample(random)];
+                Recipe recipe = Recipe.builder()
+                        .name(word(random) + " " + word(random) + " " + word(random))
+                        .minutesToMake(5 + random.nextInt(random.nextInt(10) == 0 ? 600 : 90))
+                        .difficultyRating(random.nextInt(11))
+                        .user(entityManager.getReference(CustomUserDetails.class, authorId))
+                        .ingredients(ingredients(random, ingredientPopularity))
+                        .steps(steps(random))
+                        .reviews(new ArrayList<>())
+                        .build();
+
+                // rank 0, no reviews at all, is the most likely
+                int reviewCount = reviewCounts.sample(random);
+                for (int r = 0; r < reviewCount; r++) {
+                    long reviewerId = userIdsByRank[userPopularity.sample(random)];
+                    if (reviewerId != authorId) {
+                        recipe.getReviews().add(Review.builder()
+                                .user(entityManager.getReference(CustomUserDetails.class, reviewerId))
+                                .recipe(recipe)
+                                .rating(1 + Math.min(9, (int) Math.abs(random.nextGaussian() * 2 + 6)))
+                                .description("Generated review " + r + " of " + recipe.getName())
+                                .build());
+                    }
+                }
+                reviews += recipe.getReviews().size();
+                inserted.add(recipe);
+            }
+            persistInTurn(batch, turns, inserted);
+            return reviews;
+        });
+    }
+
+    // persisting assigns the ids of the rows and everything they cascade to, the inserts wait for the flush
+    private void persistInTurn(int batch, Turns turns, List<?> rows) throws InterruptedException {
+        turns.await(batch);
+        try {
+            rows.forEach(entityManager::persist);
+        } finally {
+            turns.pass(batch);
+        }
+    }
+
+    private List<Ingredient> ingredients(Random random, Zipf ingredientPopularity) {
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0, count = listSize(random, maxIngredients); i < count; i++) {
+            ingredients.add(Ingredient.builder()
+                    .name(INGREDIENTS[ingredientPopularity.sample(random)])
+                    .amount((1 + random.nextInt(5)) + (random.nextBoolean() ? " cups" : " tbsp"))
+                    .state(STATES[random.nextInt(STATES.length)])
+                    .build());
+        }
+        return ingredients;
+    }
+
+    private List<Step> steps(Random random) {
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0, count = listSize(random, maxSteps); i < count; i++) {
+            steps.add(Step.builder()
+                    .stepNumber(i + 1)
+                    .description("Step " + (i + 1) + ": " + word(random) + " the " + INGREDIENTS[random.nextInt(INGREDIENTS.length)])
+                    .build());
+        }
+        return steps;
+    }
+
+    // mostly short lists with a long tail up to the maximum
+    private static int listSize(Random random, int max) {
+        return 1 + Math.min(max - 1, (int) Math.abs(random.nextGaussian() * max / 4));
+    }
+
+    private static String word(Random random) {
+        return NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+    }
+
+    private Random random(String table, int batch) {
+        return new Random(seed * 31 + table.hashCode() * 1_000_003L + batch);
+    }
+
+    private <T> T inTransaction(Callable<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return work.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void runBatches(String table, int rows, BatchInsert insertBatch) throws InterruptedException {
+        int batches = (rows + batchSize - 1) / batchSize;
+        AtomicLong done = new AtomicLong();
+        Turns turns = new Turns();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int batch = 0; batch < batches; batch++) {
+                int index = batch;
+                // batches start in order, so the one whose turn it is always has a thread
+                futures.add(executor.submit(() -> {
+                    try {
+                        insertBatch.insert(index, turns);
+                    } finally {
+                        // a failed batch still gives up its turn, the failure is reported through its future
+                        turns.pass(index);
+                    }
+                    long finished = done.incrementAndGet();
+                    if (finished % 100 == 0 || finished == batches) {
+                        System.out.println("GENERATED " + table + " - " + finished + " of " + batches + " batches");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generating " + table + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface BatchInsert {
+        void insert(int batch, Turns turns);
+    }
+
+    /**
+     * Lets batches through one at a time in batch order
+     */
+    private static class Turns {
+
+        private int next;
+
+        synchronized void await(int turn) throws InterruptedException {
+            while (next < turn) {
+                wait();
+            }
+        }
+
+        // once a batch is done with its turn, which it may only give up after the batches before it
+        synchronized void pass(int turn) throws InterruptedException {
+            await(turn);
+            if (next == turn) {
+                next = turn + 1;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Samples ranks 0 to n - 1 with probability proportional to 1 / (rank + 1)^exponent, by binary search
+     * over the cumulative distribution
+     */
+    private static class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[Math.max(1, n)];
+            double sum = 0;
+            for (int rank = 0; rank < cumulative.length; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < cumulative.length; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
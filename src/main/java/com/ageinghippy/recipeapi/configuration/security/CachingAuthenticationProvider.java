@@ -0,0 +1,68 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Username and password authentication as Spring Security does it by default (user lookup and BCrypt check),
+ * remembering credentials that passed in the VerifiedCredentialCache. Only successful authentications are
+ * cached, so a wrong password always goes through the full check.
+ */
+@Component
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    @Autowired
+    UserDetailsService userDetailsService;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    @Value("${recipeapi.security.credential-cache.enabled:true}")
+    boolean enabled;
+
+    private DaoAuthenticationProvider delegate;
+
+    @PostConstruct
+    public void init() {
+        delegate = new DaoAuthenticationProvider();
+        delegate.setUserDetailsService(userDetailsService);
+        delegate.setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!enabled || !(authentication.getCredentials() instanceof String password)) {
+            return delegate.authenticate(authentication);
+        }
+
+        String key = verifiedCredentialCache.keyFor(authentication.getName(), password);
+        CustomUserDetails user = verifiedCredentialCache.get(key);
+        if (user != null) {
+            return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result.getPrincipal() instanceof CustomUserDetails verifiedUser) {
+            verifiedCredentialCache.put(key, verifiedUser);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
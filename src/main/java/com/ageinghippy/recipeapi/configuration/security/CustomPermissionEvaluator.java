@@ -1,11 +1,7 @@
 package com.ageinghippy.recipeapi.configuration.security;
 
 import com.ageinghippy.recipeapi.model.CustomUserDetails;
-import com.ageinghippy.recipeapi.model.Recipe;
-import com.ageinghippy.recipeapi.model.Review;
 import com.ageinghippy.recipeapi.model.Role;
-import com.ageinghippy.recipeapi.repository.RecipeRepo;
-import com.ageinghippy.recipeapi.repository.ReviewRepo;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.PermissionEvaluator;
@@ -20,10 +16,7 @@ import java.util.Optional;
 public class CustomPermissionEvaluator implements PermissionEvaluator {
 
     @Autowired
-    RecipeRepo recipeRepo;
-
-    @Autowired
-    ReviewRepo reviewRepo;
+    OwnerLookup ownerLookup;
 
     @Override
     public boolean hasPermission(
@@ -57,10 +50,10 @@ public class CustomPermissionEvaluator implements PermissionEvaluator {
                     (CustomUserDetails) authentication.getPrincipal();
 
             if (targetType.equalsIgnoreCase("recipe")) {
-                Optional<Recipe> recipe =
-                        recipeRepo.findById(
+                Optional<String> recipeOwner =
+                        ownerLookup.findRecipeOwner(
                                 Long.parseLong(targetId.toString()));
-                if (recipe.isEmpty()) {
+                if (recipeOwner.isEmpty()) {
                     // no recipe with id exists, return true so the method
                     // can continue ultimately throwing an exception
                     return true;
@@ -68,17 +61,16 @@ public class CustomPermissionEvaluator implements PermissionEvaluator {
 
                 // if the author of the entity matches the current user
                 // they are the owner of the recipe and allowed access
-                return recipe
+                return recipeOwner
                         .get()
-                        .getAuthor()
                         .equals(userDetails.getUsername());
 
             } else if (targetType.equalsIgnoreCase("review")) {
-                Optional<Review> review =
-                        reviewRepo.findById(
+                Optional<String> reviewOwner =
+                        ownerLookup.findReviewOwner(
                                 Long.parseLong(
                                         targetId.toString()));
-                if (review.isEmpty()) {
+                if (reviewOwner.isEmpty()) {
                     throw new EntityNotFoundException(
                             "The review you are trying to " +
                                     "access does not exist");
@@ -86,9 +78,8 @@ public class CustomPermissionEvaluator implements PermissionEvaluator {
 
                 // if the author of the entity matches the current user
                 // they are the owner of the review and allowed access
-                return review
+                return reviewOwner
                         .get()
-                        .getAuthor()
                         .equals(userDetails.getUsername());
             }
         }
@@ -0,0 +1,54 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.ReviewRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * The username owning a recipe or review, for authorization checks. Owners never change, so they are cached
+ * per type and id until the recipe or review is deleted, and a miss reads the username alone.
+ * The cache is used directly rather than through @Cacheable as the permission evaluator, and with it this
+ * bean, is created before the caching proxies are in place.
+ */
+@Component
+public class OwnerLookup {
+
+    public static final String CACHE_NAME = "owners";
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Autowired
+    ReviewRepo reviewRepo;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    public Optional<String> findRecipeOwner(Long recipeId) {
+        return find("recipe-" + recipeId, () -> recipeRepo.findAuthorUsernameById(recipeId));
+    }
+
+    public Optional<String> findReviewOwner(Long reviewId) {
+        return find("review-" + reviewId, () -> reviewRepo.findAuthorUsernameById(reviewId));
+    }
+
+    private Optional<String> find(String key, Supplier<Optional<String>> lookup) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        String owner = cache == null ? null : cache.get(key, String.class);
+        if (owner != null) {
+            return Optional.of(owner);
+        }
+
+        Optional<String> found = lookup.get();
+        if (cache != null) {
+            found.ifPresent(username -> cache.put(key, username));
+        }
+        return found;
+    }
+}
@@ -16,7 +16,7 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http)
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenService tokenService)
             throws Exception {
         http
                 // disable CSRF for Postman usage
@@ -25,6 +25,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/css", "/js").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // health checks and the metrics scrape are open to the monitoring systems
+                        .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
+                        // operational endpoints are for admins only
+                        .requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                         // allow all requests to read recipes and reviews
                         .requestMatchers(HttpMethod.GET, "/recipe/**", "/review/**", "/user").permitAll()
                         .requestMatchers(HttpMethod.POST, "/user").permitAll()
@@ -33,7 +37,12 @@ public class SecurityConfig {
                         // all other requests should be authenticated
                         .anyRequest().authenticated())
                 // users should log in with HTTP Basic Authentication.
-                .httpBasic(Customizer.withDefaults());
+                .httpBasic(Customizer.withDefaults())
+                // or with a bearer token from POST /auth/token, checked without loading the user
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> jwt
+                                .decoder(tokenService.getDecoder())
+                                .jwtAuthenticationConverter(tokenService::toAuthentication)));
         return http.build();
     }
 
@@ -0,0 +1,33 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * A request authenticated by a bearer token from POST /auth/token. The principal is built from the token
+ * claims alone (id, username and roles), without loading the user.
+ */
+public class TokenAuthentication extends AbstractAuthenticationToken {
+
+    private final CustomUserDetails principal;
+
+    private final Jwt token;
+
+    public TokenAuthentication(CustomUserDetails principal, Jwt token) {
+        super(principal.getAuthorities());
+        this.principal = principal;
+        this.token = token;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public CustomUserDetails getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Jwt getCredentials() {
+        return token;
+    }
+}
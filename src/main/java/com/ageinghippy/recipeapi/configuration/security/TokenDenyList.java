@@ -0,0 +1,95 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.replicatedmap.ReplicatedMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bearer tokens revoked before they expire. Held in a hazelcast replicated map, so every node checks tokens
+ * against its own copy without a remote call. Entries only live as long as the tokens they revoke could.
+ * <p>
+ * Revoking every token of a user records a new token version for them, in milliseconds. Tokens carry the
+ * version current when they were issued, so a token issued in the same second as the revocation is told
+ * apart by it, where the issued at claim, in whole seconds, could not.
+ */
+@Component
+public class TokenDenyList implements OAuth2TokenValidator<Jwt> {
+
+    public static final String MAP_NAME = "revokedTokens";
+
+    public static final String VERSION_CLAIM = "ver";
+
+    private static final String USER_PREFIX = "user-";
+
+    private static final OAuth2Error REVOKED = new OAuth2Error("invalid_token", "The token has been revoked", null);
+
+    private ReplicatedMap<String, Long> revoked;
+
+    @Autowired
+    HazelcastInstance hazelcastInstance;
+
+    @Value("${recipeapi.security.token.ttl-minutes:15}")
+    long ttlMinutes;
+
+    @PostConstruct
+    public void init() {
+        revoked = hazelcastInstance.getReplicatedMap(MAP_NAME);
+    }
+
+    /**
+     * Revoke a single token, e.g. on logout.
+     */
+    public void revoke(Jwt token) {
+        long secondsLeft = token.getExpiresAt() == null ? ttlMinutes * 60
+                : Math.max(1, token.getExpiresAt().getEpochSecond() - Instant.now().getEpochSecond());
+        revoked.put(token.getId(), token.getExpiresAt() == null ? 0L : token.getExpiresAt().toEpochMilli(),
+                secondsLeft, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Revoke every token issued to the user so far. Use after the password or the account status of the
+     * user changes.
+     */
+    public void revokeAllFor(String username) {
+        // always moving forward, so tokens issued with the previous version are revoked however close the calls
+        long version = Math.max(System.currentTimeMillis(), versionFor(username) + 1);
+        revoked.put(USER_PREFIX + username, version, ttlMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param username
+     * @return {@code long} the token version to issue the user's tokens with, 0 while none were revoked
+     */
+    public long versionFor(String username) {
+        Long version = revoked.get(USER_PREFIX + username);
+        return version == null ? 0 : version;
+    }
+
+    public boolean isRevoked(Jwt token) {
+        if (token.getId() != null && revoked.containsKey(token.getId())) {
+            return true;
+        }
+        Long version = revoked.get(USER_PREFIX + token.getSubject());
+        if (version == null) {
+            return false;
+        }
+        // tokens without a version predate it; a newer version than this node knows of is still replicating
+        Number tokenVersion = token.getClaim(VERSION_CLAIM);
+        return tokenVersion == null || tokenVersion.longValue() < version;
+    }
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt token) {
+        return isRevoked(token) ? OAuth2TokenValidatorResult.failure(REVOKED) : OAuth2TokenValidatorResult.success();
+    }
+}
@@ -0,0 +1,121 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.Role;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Issues and verifies the short-lived bearer tokens handed out by POST /auth/token: HMAC signed JWTs
+ * carrying the user id, username and roles, so authenticating a request needs neither the user lookup nor
+ * BCrypt. All nodes of a cluster must share the secret.
+ */
+@Component
+public class TokenService {
+
+    public static final String ISSUER = "recipeapi";
+
+    private static final String USER_ID_CLAIM = "uid";
+
+    private static final String ROLES_CLAIM = "roles";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    @Autowired
+    TokenDenyList tokenDenyList;
+
+    @Value("${recipeapi.security.token.secret:}")
+    String secret;
+
+    @Value("${recipeapi.security.token.ttl-minutes:15}")
+    long ttlMinutes;
+
+    private JwtEncoder encoder;
+
+    private JwtDecoder decoder;
+
+    @PostConstruct
+    public void init() {
+        SecretKey key = new SecretKeySpec(secretBytes(), "HmacSHA256");
+        encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+
+        NimbusJwtDecoder nimbusDecoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+        nimbusDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(ISSUER), tokenDenyList));
+        decoder = nimbusDecoder;
+    }
+
+    public IssuedToken issue(CustomUserDetails user) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer(ISSUER)
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                .claim(TokenDenyList.VERSION_CLAIM, tokenDenyList.versionFor(user.getUsername()))
+                .issuedAt(now)
+                .expiresAt(now.plus(ttlMinutes, ChronoUnit.MINUTES))
+                .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        String token = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        return new IssuedToken(token, "Bearer", ttlMinutes * 60);
+    }
+
+    public JwtDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * @param token a verified token
+     * @return {@code TokenAuthentication} the authentication of the request, with the user and roles taken from the token
+     */
+    public TokenAuthentication toAuthentication(Jwt token) {
+        List<Role> roles = token.getClaimAsStringList(ROLES_CLAIM) == null ? List.of()
+                : token.getClaimAsStringList(ROLES_CLAIM).stream()
+                .map(role -> new Role(Role.Roles.valueOf(role)))
+                .toList();
+        Number userId = token.getClaim(USER_ID_CLAIM);
+        CustomUserDetails user = CustomUserDetails.builder()
+                .id(userId == null ? null : userId.longValue())
+                .username(token.getSubject())
+                .authorities(roles)
+                .build();
+        return new TokenAuthentication(user, token);
+    }
+
+    private byte[] secretBytes() {
+        if (secret == null || secret.isBlank()) {
+            log.warn("No recipeapi.security.token.secret set, tokens are signed with a random key and only valid on this node until it restarts");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            return random;
+        }
+        byte[] bytes = Base64.getDecoder().decode(secret);
+        if (bytes.length < 32) {
+            throw new IllegalStateException("recipeapi.security.token.secret must be at least 256 bits, base64 encoded");
+        }
+        return bytes;
+    }
+
+    public record IssuedToken(String accessToken, String tokenType, long expiresIn) {
+    }
+}
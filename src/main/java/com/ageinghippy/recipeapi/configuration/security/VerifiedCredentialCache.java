@@ -0,0 +1,146 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Users whose username and password were recently verified, so repeated HTTP Basic requests skip the user
+ * lookup and the BCrypt check. Entries are keyed by an HMAC of the username and password under a random key
+ * that never leaves this node, so the cache holds nothing that could be used to test password guesses.
+ * It is local to each node, bounded (least recently used entries go first) and entries expire after a TTL.
+ * Changing a password or disabling an account invalidates the user's entries on every node.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final String INVALIDATION_TOPIC = "verifiedCredentialInvalidations";
+
+    private final byte[] hmacKey = new byte[32];
+
+    private final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(this::newHmac);
+
+    private Map<String, Entry> entries;
+
+    // a lock rather than synchronized, which would pin virtual threads waiting for it
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ITopic<String> invalidations;
+
+    @Autowired(required = false)
+    HazelcastInstance hazelcastInstance;
+
+    @Value("${recipeapi.security.credential-cache.ttl-seconds:300}")
+    long ttlSeconds;
+
+    @Value("${recipeapi.security.credential-cache.max-size:10000}")
+    int maxSize;
+
+    @PostConstruct
+    public void init() {
+        new SecureRandom().nextBytes(hmacKey);
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        if (hazelcastInstance != null) {
+            invalidations = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+            invalidations.addMessageListener(message -> removeUser(message.getMessageObject()));
+        }
+    }
+
+    public String keyFor(String username, String password) {
+        byte[] credentials = (username + '\0' + password).getBytes(StandardCharsets.UTF_8);
+        return Base64.getEncoder().encodeToString(hmac.get().doFinal(credentials));
+    }
+
+    /**
+     * @param key the key of the username and password, see keyFor
+     * @return {@code CustomUserDetails} the user verified with these credentials, null if not cached or expired
+     */
+    public CustomUserDetails get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.user();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String key, CustomUserDetails user) {
+        Entry entry = new Entry(user, System.currentTimeMillis() + ttlSeconds * 1000);
+        lock.lock();
+        try {
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget every verified password of the user, on all nodes. Use after the password or the account status
+     * of the user changes.
+     */
+    public void invalidate(String username) {
+        //topic messages are delivered asynchronously, this node forgets them before the change is reported done
+        removeUser(username);
+        if (invalidations != null) {
+            invalidations.publish(username);
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeUser(String username) {
+        lock.lock();
+        try {
+            entries.values().removeIf(entry -> entry.user().getUsername().equals(username));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Mac newHmac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(hmacKey, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private record Entry(CustomUserDetails user, long expiresAt) {
+    }
+}
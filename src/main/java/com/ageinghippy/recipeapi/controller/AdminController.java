@@ -0,0 +1,54 @@
+package com.ageinghippy.recipeapi.controller;
+
+import com.ageinghippy.recipeapi.cache.CacheStatistics;
+import com.ageinghippy.recipeapi.diagnostics.TraceStore;
+import com.ageinghippy.recipeapi.service.CustomUserDetailsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Admin", description = "Operational information, admins only")
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    CacheStatistics cacheStatistics;
+
+    @Autowired
+    TraceStore traceStore;
+
+    @Autowired
+    CustomUserDetailsService userDetailsService;
+
+    @Operation(summary = "Hit ratios and sizes of the caches on this node.")
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(cacheStatistics.getCacheStats());
+    }
+
+    @Operation(summary = "The most recent request traces on this node, most recent first.",
+            description = "Each trace is a tree of spans (controller, service, cache, repository and jdbc) " +
+                    "with offsets and durations in microseconds. Use minDurationMs to find the slow ones.")
+    @GetMapping("/traces")
+    public ResponseEntity<?> getTraces(@RequestParam(defaultValue = "50") int limit,
+                                       @RequestParam(defaultValue = "0") long minDurationMs) {
+        return ResponseEntity.ok(traceStore.getRecentTraces(limit, minDurationMs));
+    }
+
+    @Operation(summary = "Enable or disable the account of a user.",
+            description = "A disabled user can no longer log in, and bearer tokens issued so far stop working.")
+    @PutMapping("/users/{username}/enabled")
+    public ResponseEntity<?> setUserEnabled(@PathVariable("username") String username,
+                                            @RequestParam boolean enabled) {
+        userDetailsService.setEnabled(username, enabled);
+        return ResponseEntity.ok("The account of " + username + " was " + (enabled ? "enabled." : "disabled."));
+    }
+}
@@ -0,0 +1,47 @@
+package com.ageinghippy.recipeapi.controller;
+
+import com.ageinghippy.recipeapi.configuration.security.TokenAuthentication;
+import com.ageinghippy.recipeapi.configuration.security.TokenDenyList;
+import com.ageinghippy.recipeapi.configuration.security.TokenService;
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Auth", description = "Exchange credentials for bearer tokens")
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+
+    @Autowired
+    TokenService tokenService;
+
+    @Autowired
+    TokenDenyList tokenDenyList;
+
+    @Operation(summary = "Exchange HTTP Basic credentials for a short-lived bearer token.",
+            description = "Send the token as 'Authorization: Bearer <token>' on later requests.")
+    @PostMapping("/token")
+    public ResponseEntity<?> getToken(Authentication authentication) {
+        if (authentication instanceof TokenAuthentication) {
+            //handled by ControllerAdvice
+            throw new IllegalArgumentException("A token cannot be exchanged for a new one, log in with your username and password.");
+        }
+        return ResponseEntity.ok(tokenService.issue((CustomUserDetails) authentication.getPrincipal()));
+    }
+
+    @Operation(summary = "Revoke the bearer token used for this request.")
+    @PostMapping("/revoke")
+    public ResponseEntity<?> revokeToken(Authentication authentication) {
+        if (!(authentication instanceof TokenAuthentication tokenAuthentication)) {
+            throw new IllegalArgumentException("Only requests authenticated with a bearer token can revoke it.");
+        }
+        tokenDenyList.revoke(tokenAuthentication.getCredentials());
+        return ResponseEntity.ok("The token was revoked.");
+    }
+}
@@ -0,0 +1,81 @@
+package com.ageinghippy.recipeapi.controller;
+
+import com.ageinghippy.recipeapi.repository.ResourceVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+/**
+ * Conditional GETs. Responses carry a strong {@code ETag} built from the id and version of the resource and a
+ * {@code Last-Modified}. A request whose {@code If-None-Match} (or, without one, {@code If-Modified-Since})
+ * matches the current version is answered with 304 Not Modified after reading the version alone.
+ * A gzip encoded representation is a different set of bytes, so it has an ETag of its own.
+ */
+public class ConditionalResponse {
+
+    private static final String GZIP_SUFFIX = "-gz";
+
+    public static String eTag(Long id, Long version) {
+        return eTag(id, version, false);
+    }
+
+    public static String eTag(Long id, Long version, boolean gzip) {
+        return "\"" + id + "-" + version + (gzip ? GZIP_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * @param requestHeaders the headers of the request
+     * @param id             the id of the resource
+     * @param version        reads the current version of the resource, only called for conditional requests
+     * @return {@code ResponseEntity} a 304 response if the client's copy is current, otherwise null
+     */
+    public static <T> ResponseEntity<T> notModified(HttpHeaders requestHeaders, Long id, Supplier<ResourceVersion> version) {
+        return notModified(requestHeaders, id, false, version);
+    }
+
+    /**
+     * As {@link #notModified(HttpHeaders, Long, Supplier)}, for a resource that would be sent gzip encoded
+     *
+     * @param gzip true if the representation the request would get is gzip encoded
+     */
+    public static <T> ResponseEntity<T> notModified(HttpHeaders requestHeaders, Long id, boolean gzip,
+                                                    Supplier<ResourceVersion> version) {
+        if (requestHeaders.getIfNoneMatch().isEmpty() && requestHeaders.getIfModifiedSince() < 0) {
+            return null;
+        }
+        ResourceVersion current = version.get();
+        if (current == null || !isCurrent(requestHeaders, eTag(id, current.version(), gzip), current)) {
+            return null;
+        }
+        return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build(), id, current, gzip);
+    }
+
+    public static <T> ResponseEntity<T> withValidators(ResponseEntity<T> response, Long id, ResourceVersion version) {
+        return withValidators(response, id, version, false);
+    }
+
+    public static <T> ResponseEntity<T> withValidators(ResponseEntity<T> response, Long id, ResourceVersion version,
+                                                       boolean gzip) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders());
+        if (version != null && version.version() != null) {
+            builder.eTag(eTag(id, version.version(), gzip));
+        }
+        if (version != null && version.updatedAt() != null) {
+            builder.lastModified(version.updatedAt());
+        }
+        return builder.body(response.getBody());
+    }
+
+    private static boolean isCurrent(HttpHeaders requestHeaders, String eTag, ResourceVersion version) {
+        if (!requestHeaders.getIfNoneMatch().isEmpty()) {
+            // If-None-Match uses the weak comparison, so a W/ prefix added by a proxy still matches
+            return requestHeaders.getIfNoneMatch().stream()
+                    .anyMatch(tag -> tag.equals("*") || tag.replaceFirst("^W/", "").equals(eTag));
+        }
+        // Last-Modified only has a precision of seconds
+        return version.updatedAt() != null
+                && version.updatedAt().getEpochSecond() * 1000 <= requestHeaders.getIfModifiedSince();
+    }
+}
@@ -1,20 +1,30 @@
 package com.ageinghippy.recipeapi.controller;
 
+import com.ageinghippy.recipeapi.cache.HotKeyTracker;
+import com.ageinghippy.recipeapi.diagnostics.StatementBudget;
 import com.ageinghippy.recipeapi.exception.NoSuchIngredientException;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.repository.ResourceVersion;
+import com.ageinghippy.recipeapi.service.RecipeJsonService;
 import com.ageinghippy.recipeapi.service.RecipeService;
+import com.ageinghippy.recipeapi.utils.Utils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Tag(name = "Recipe", description = "Manage recipes")
@@ -28,6 +38,13 @@ public class RecipeController {
     @Autowired
     CacheManager cacheManager;
 
+    @Autowired
+    HotKeyTracker hotKeyTracker;
+
+    //only present when the encoded recipe cache is enabled
+    @Autowired(required = false)
+    RecipeJsonService recipeJsonService;
+
     @PostMapping
     public ResponseEntity<?> createNewRecipe(@Valid @RequestBody Recipe recipe, Authentication authentication) {
         recipe.setUser(recipeService.castToCustomUserDetails((UserDetails) authentication.getPrincipal()));
@@ -35,16 +52,68 @@ public class RecipeController {
         return ResponseEntity.created(insertedRecipe.getLocationURI()).body(insertedRecipe);
     }
 
+    // the recipe with its author, ingredients, steps and reviews, and the version check
+    @StatementBudget(10)
     @GetMapping("/{id}")
-    public ResponseEntity<?> getRecipeById(@PathVariable("id") Long id) throws NoSuchRecipeException {
-        Recipe recipe = recipeService.getRecipeById(id);
-        return ResponseEntity.ok(recipe);
+    public ResponseEntity<?> getRecipeById(@PathVariable("id") Long id,
+                                           @RequestHeader HttpHeaders headers) throws NoSuchRecipeException {
+        //the encoded recipe cache sends gzip to clients accepting it, a representation with an ETag of its own
+        boolean negotiated = recipeJsonService != null && recipeJsonService.isGzipEnabled();
+        boolean gzip = negotiated && acceptsGzip(headers);
+        ResponseEntity<?> notModified = ConditionalResponse.notModified(headers, id, gzip, () -> recipeService.getRecipeVersion(id));
+        if (notModified != null) {
+            hotKeyTracker.recordRecipe(id);
+            return negotiated ? varyByEncoding(notModified) : notModified;
+        }
+        ResponseEntity<?> response;
+        if (recipeJsonService != null) {
+            response = encodedRecipe(recipeJsonService.getEncodedRecipe(id), id, gzip);
+        } else {
+            Recipe recipe = recipeService.getRecipeById(id);
+            response = ConditionalResponse.withValidators(ResponseEntity.ok(recipe), id,
+                    new ResourceVersion(recipe.getVersion(), recipe.getUpdatedAt()));
+        }
+        //only recipes that were found are recorded, so probing for ids that do not exist warms nothing
+        hotKeyTracker.recordRecipe(id);
+        return response;
+    }
+
+    //the stored bytes are written as they are, gzipped ones if the client accepts them
+    private ResponseEntity<byte[]> encodedRecipe(RecipeJsonService.EncodedRecipe encoded, Long id, boolean acceptsGzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptsGzip && encoded.gzipJson() != null;
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return ConditionalResponse.withValidators(response.body(gzip ? encoded.gzipJson() : encoded.json()), id,
+                new ResourceVersion(encoded.version(), encoded.updatedAt()), gzip);
     }
 
+    private static <T> ResponseEntity<T> varyByEncoding(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(response.getBody());
+    }
+
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        return headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .anyMatch(coding -> coding.equals("gzip") || (coding.startsWith("gzip;") && !coding.matches("gzip;\\s*q=0(\\.0*)?")));
+    }
+
+    // a page costs the same whatever its size, the collections are batch fetched
+    @StatementBudget(9)
     @GetMapping("/all")
-    public ResponseEntity<?> getAllDodgeCache() throws NoSuchRecipeException {
-        List<Recipe> recipes = recipeService.getAllDodgeCache();
-        return ResponseEntity.ok(recipes);
+    public ResponseEntity<?> getAllDodgeCache(@RequestParam(required = false) String sort,
+                                              @RequestParam(required = false) String direction,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) throws NoSuchRecipeException {
+        KeysetPage<Recipe> recipes = recipeService.getAllDodgeCache(KeysetRequest.of(sort, direction, cursor, limit));
+        return PagedResponse.ok(recipes);
     }
 
     @Operation(summary = "Get all recipes matching a set of optional query parameters.",
@@ -57,43 +126,59 @@ public class RecipeController {
                     5) minimumReviewRating - all recipes with the minimum average review rating as provided
                                         
                     Note: Provision of an illegal combination will result in a 400 Bad Request
+                    
+                    Results are returned a page at a time, ordered by sort (id, name, difficultyRating, minutesToMake
+                    or reviewRating, default id) and direction (asc or desc, default asc). At most limit recipes
+                    are returned (default 20, maximum 100). When there are more, the X-Next-Cursor header holds the
+                    cursor to pass to fetch the next page, and the Link header the full URL of that page.
                     """)
+    @StatementBudget(9)
     @GetMapping
     public ResponseEntity<?> getAllRecipes(@RequestParam(required = false) String name,
                                            @RequestParam(required = false) String author,
                                            @RequestParam(required = false) Integer maximumDifficultyRating,
-                                           @RequestParam(required = false) Integer minimumReviewRating) throws NoSuchRecipeException {
-        List<Recipe> recipes = null;
+                                           @RequestParam(required = false) Integer minimumReviewRating,
+                                           @RequestParam(required = false) String sort,
+                                           @RequestParam(required = false) String direction,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) throws NoSuchRecipeException {
+        KeysetRequest page = KeysetRequest.of(sort, direction, cursor, limit);
+        KeysetPage<Recipe> recipes = null;
         if (name == null &&
                 author == null &&
                 maximumDifficultyRating == null &&
                 minimumReviewRating == null) {
             //get all - no filters applied
-            recipes = recipeService.getAllRecipes();
+            hotKeyTracker.recordList(HotKeyTracker.ALL, page);
+            recipes = recipeService.getAllRecipes(page);
         } else if (name != null &&
                 author == null &&
                 maximumDifficultyRating == null &&
                 minimumReviewRating == null) {
             //recipes by name only
-            recipes = recipeService.getRecipesByName(name);
+            hotKeyTracker.recordList(HotKeyTracker.NAME, page, name);
+            recipes = recipeService.getRecipesByName(name, page);
         } else if (name != null &&
                 author == null &&
                 maximumDifficultyRating != null &&
                 minimumReviewRating == null) {
             //recipes by name and difficulty rating
-            recipes = recipeService.getRecipesByNameAndMaximumDifficulty(name, maximumDifficultyRating);
+            hotKeyTracker.recordList(HotKeyTracker.NAME_AND_DIFFICULTY, page, maximumDifficultyRating, name);
+            recipes = recipeService.getRecipesByNameAndMaximumDifficulty(name, maximumDifficultyRating, page);
         } else if (name == null &&
                 author == null &&
                 maximumDifficultyRating == null &&
                 minimumReviewRating != null) {
             //by minimum review rating
-            recipes = recipeService.getAllRecipesByMinimumReviewRating(minimumReviewRating);
+            hotKeyTracker.recordList(HotKeyTracker.RATING, page, minimumReviewRating);
+            recipes = recipeService.getAllRecipesByMinimumReviewRating(minimumReviewRating, page);
         } else if (name == null &&
                 author != null &&
                 maximumDifficultyRating == null &&
                 minimumReviewRating == null) {
             //by username
-            recipes = recipeService.getRecipesByUsername(author);
+            hotKeyTracker.recordList(HotKeyTracker.AUTHOR, page, author);
+            recipes = recipeService.getRecipesByUsername(author, page);
         } else {
             //handled by ControllerAdvice
             throw new IllegalArgumentException("""
@@ -105,19 +190,53 @@ public class RecipeController {
                     4) username - all recipes with the provided username
                     5) minimumReviewRating - all recipes with the minimum average review rating as provided""");
         }
-        return ResponseEntity.ok(recipes);
+        return PagedResponse.ok(recipes);
     }
 
+    @StatementBudget(9)
     @GetMapping("/review-rating/{minimumReviewRating}")
-    public ResponseEntity<?> getRecipesByMinimumReviewRating(@PathVariable int minimumReviewRating) {
-        List<Recipe> recipes = recipeService.getAllRecipesByMinimumReviewRating(minimumReviewRating);
-        return ResponseEntity.ok(recipes);
+    public ResponseEntity<?> getRecipesByMinimumReviewRating(@PathVariable int minimumReviewRating,
+                                                             @RequestParam(required = false) String sort,
+                                                             @RequestParam(required = false) String direction,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit) {
+        KeysetRequest page = KeysetRequest.of(sort, direction, cursor, limit);
+        hotKeyTracker.recordList(HotKeyTracker.RATING, page, minimumReviewRating);
+        KeysetPage<Recipe> recipes = recipeService.getAllRecipesByMinimumReviewRating(minimumReviewRating, page);
+        return PagedResponse.ok(recipes);
     }
 
+    @StatementBudget(9)
     @GetMapping("/search/{name}")
-    public ResponseEntity<?> getRecipesByName(@PathVariable("name") String name) throws NoSuchRecipeException {
-        List<Recipe> matchingRecipes = recipeService.getRecipesByName(name);
-        return ResponseEntity.ok(matchingRecipes);
+    public ResponseEntity<?> getRecipesByName(@PathVariable("name") String name,
+                                              @RequestParam(required = false) String sort,
+                                              @RequestParam(required = false) String direction,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) throws NoSuchRecipeException {
+        KeysetRequest page = KeysetRequest.of(sort, direction, cursor, limit);
+        hotKeyTracker.recordList(HotKeyTracker.NAME, page, name);
+        KeysetPage<Recipe> matchingRecipes = recipeService.getRecipesByName(name, page);
+        return PagedResponse.ok(matchingRecipes);
+    }
+
+    @Operation(summary = "Get the recipes using every included ingredient and none of the excluded ones.",
+            description = """
+                    include and exclude are comma separated ingredient names, compared ignoring case and extra spaces.
+                    At least one ingredient must be included. Results are paged as for GET /recipe, though sorting
+                    by anything but id is only possible while at most a configured number of recipes match.
+                    """)
+    @StatementBudget(9)
+    @GetMapping("/search/ingredients")
+    public ResponseEntity<?> getRecipesByIngredients(@RequestParam List<String> include,
+                                                     @RequestParam(required = false) List<String> exclude,
+                                                     @RequestParam(required = false) String sort,
+                                                     @RequestParam(required = false) String direction,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit) throws NoSuchRecipeException {
+        KeysetRequest page = KeysetRequest.of(sort, direction, cursor, limit);
+        KeysetPage<Recipe> matchingRecipes = recipeService.getRecipesByIngredients(
+                include, Utils.nvl(exclude, List.of()), page);
+        return PagedResponse.ok(matchingRecipes);
     }
 
     @DeleteMapping("/{id}")
@@ -1,21 +1,25 @@
 package com.ageinghippy.recipeapi.controller;
 
+import com.ageinghippy.recipeapi.diagnostics.StatementBudget;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.exception.NoSuchReviewException;
 import com.ageinghippy.recipeapi.model.CustomUserDetails;
 import com.ageinghippy.recipeapi.model.Recipe;
 import com.ageinghippy.recipeapi.model.Review;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.repository.ResourceVersion;
+import com.ageinghippy.recipeapi.service.RecipeService;
 import com.ageinghippy.recipeapi.service.ReviewService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/review")
 public class ReviewController {
@@ -24,25 +28,49 @@ public class ReviewController {
     @Autowired
     ReviewService reviewService;
 
+    @Autowired
+    RecipeService recipeService;
+
     @Autowired
     CacheManager cacheManager;
 
+    @StatementBudget(8)
     @GetMapping("/{id}")
-    public ResponseEntity<?> getReviewById(@PathVariable("id") Long id) throws NoSuchReviewException {
+    public ResponseEntity<?> getReviewById(@PathVariable("id") Long id,
+                                           @RequestHeader HttpHeaders headers) throws NoSuchReviewException {
+        ResponseEntity<?> notModified = ConditionalResponse.notModified(headers, id, () -> reviewService.getReviewVersion(id));
+        if (notModified != null) {
+            return notModified;
+        }
         Review retrievedReview = reviewService.getReviewById(id);
-        return ResponseEntity.ok(retrievedReview);
+        return ConditionalResponse.withValidators(ResponseEntity.ok(retrievedReview), id,
+                new ResourceVersion(retrievedReview.getVersion(), retrievedReview.getUpdatedAt()));
     }
 
+    @StatementBudget(9)
     @GetMapping("/recipe/{recipeId}")
-    public ResponseEntity<?> getReviewByRecipeId(@PathVariable("recipeId") Long recipeId) throws NoSuchReviewException, NoSuchRecipeException {
-        List<Review> reviews = reviewService.getReviewByRecipeId(recipeId);
-        return ResponseEntity.ok(reviews);
+    public ResponseEntity<?> getReviewByRecipeId(@PathVariable("recipeId") Long recipeId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestHeader HttpHeaders headers) throws NoSuchReviewException, NoSuchRecipeException {
+        //every review write bumps the version of its recipe. Read before the reviews, so a write in between
+        //leaves the response with an older ETag rather than a newer one
+        ResourceVersion version = recipeService.getRecipeVersion(recipeId);
+        ResponseEntity<?> notModified = ConditionalResponse.notModified(headers, recipeId, () -> version);
+        if (notModified != null) {
+            return notModified;
+        }
+        KeysetPage<Review> reviews = reviewService.getReviewByRecipeId(recipeId, KeysetRequest.byId(cursor, limit));
+        return ConditionalResponse.withValidators(PagedResponse.ok(reviews), recipeId, version);
     }
 
+    @StatementBudget(9)
     @GetMapping("/user/{username}")
-    public ResponseEntity<?> getReviewByUsername(@PathVariable("username") String username) throws NoSuchReviewException {
-        List<Review> reviews = reviewService.getReviewByUsername(username);
-        return ResponseEntity.ok(reviews);
+    public ResponseEntity<?> getReviewByUsername(@PathVariable("username") String username,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit) throws NoSuchReviewException {
+        KeysetPage<Review> reviews = reviewService.getReviewByUsername(username, KeysetRequest.byId(cursor, limit));
+        return PagedResponse.ok(reviews);
     }
 
     @PostMapping("/{recipeId}")
@@ -50,8 +78,11 @@ public class ReviewController {
                                            @PathVariable("recipeId") Long recipeId,
                                            Authentication authentication) throws NoSuchRecipeException {
         review.setUser((CustomUserDetails) authentication.getPrincipal());
-        Recipe insertedRecipe = reviewService.postNewReview(review, recipeId);
-        return ResponseEntity.created(insertedRecipe.getLocationURI()).body(insertedRecipe);
+        reviewService.postNewReview(review, recipeId);
+        //the response is the reviewed recipe, read once the review is committed so it carries the new rating
+        Recipe reviewedRecipe = recipeService.getRecipeById(recipeId);
+        reviewedRecipe.generateLocationURI();
+        return ResponseEntity.created(reviewedRecipe.getLocationURI()).body(reviewedRecipe);
 
     }
 
@@ -2,6 +2,7 @@ package com.ageinghippy.recipeapi.controller;
 
 import com.ageinghippy.recipeapi.model.CustomUserDetails;
 import com.ageinghippy.recipeapi.service.CustomUserDetailsService;
+import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -23,4 +24,21 @@ public class UserController {
     public ResponseEntity<?> createNewUser(@RequestBody CustomUserDetails userDetails) {
         return ResponseEntity.ok(userDetailsService.createNewUser(userDetails));
     }
+
+    @Operation(summary = "Change the password of the logged in user.",
+            description = "The current password must be given, so a leaked bearer token cannot take over the account. " +
+                    "The old password, and every bearer token issued so far, stop working straight away.")
+    @PutMapping("/password")
+    public ResponseEntity<?> changePassword(@RequestBody PasswordChange passwordChange, Authentication authentication) {
+        userDetailsService.changePassword(
+                authentication.getName(), passwordChange.currentPassword(), passwordChange.password());
+        return ResponseEntity.ok("The password was changed.");
+    }
+
+    /**
+     * @param currentPassword the password being replaced
+     * @param password        the new password
+     */
+    public record PasswordChange(String currentPassword, String password) {
+    }
 }
@@ -4,6 +4,7 @@ import com.ageinghippy.recipeapi.exception.NoSuchIngredientException;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.exception.NoSuchReviewException;
 import com.ageinghippy.recipeapi.exception.ResponseErrorMessage;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.validation.FieldError;
@@ -40,7 +41,8 @@ public class ControllerAdvice {
     @ExceptionHandler({
             NoSuchRecipeException.class,
             NoSuchIngredientException.class,
-            NoSuchReviewException.class})
+            NoSuchReviewException.class,
+            EntityNotFoundException.class})
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseErrorMessage noSuchEntity(Exception e) {
         List<String> errorMessages = List.of(e.getMessage());
@@ -0,0 +1,64 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A timed step of a trace, see Tracer. Close it, with try-with-resources, when the step is done.
+ */
+public class Span implements AutoCloseable {
+
+    // returned when there is no trace on the thread, so callers never need to check
+    static final Span NOOP = new Span(null, null, "", "");
+
+    private final Tracer.ActiveTrace trace;
+    private final Span parent;
+    private final String kind;
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private long durationNanos = -1;
+    private Map<String, String> tags;
+    private List<Span> children;
+
+    Span(Tracer.ActiveTrace trace, Span parent, String kind, String name) {
+        this.trace = trace;
+        this.parent = parent;
+        this.kind = kind;
+        this.name = name;
+    }
+
+    public Span tag(String key, Object value) {
+        if (this != NOOP) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (this != NOOP && durationNanos < 0) {
+            durationNanos = System.nanoTime() - startNanos;
+            trace.current = parent;
+        }
+    }
+
+    void addChild(Span child) {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        children.add(child);
+    }
+
+    TraceRecord.TraceSpan toRecord(long traceStartNanos) {
+        long duration = durationNanos < 0 ? System.nanoTime() - startNanos : durationNanos;
+        return new TraceRecord.TraceSpan(kind, name,
+                (startNanos - traceStartNanos) / 1000, duration / 1000,
+                tags == null ? Map.of() : tags,
+                children == null ? List.of() : children.stream().map(child -> child.toRecord(traceStartNanos)).toList());
+    }
+}
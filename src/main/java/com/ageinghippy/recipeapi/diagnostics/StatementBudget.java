@@ -0,0 +1,14 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import java.lang.annotation.*;
+
+/**
+ * The most SQL statements a request to the endpoint may run. Requests over it are logged with the statements
+ * they ran, and fail the tests when the budget is enforced, see StatementBudgetInterceptor.
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+    int value();
+}
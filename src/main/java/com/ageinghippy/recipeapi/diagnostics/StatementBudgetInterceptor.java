@@ -0,0 +1,95 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Counts the SQL statements each request runs, from the handler being called to the response being written
+ * (so lazy loading during serialization counts too), and logs requests over their budget with the query
+ * shapes they ran, most repeated first. Endpoints declare their budget with {@link StatementBudget}, others
+ * get the default. When enforced, as in the tests, requests over a declared budget are also kept as violations.
+ */
+@Component
+public class StatementBudgetInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBudgetInterceptor.class);
+
+    private final List<String> violations = new CopyOnWriteArrayList<>();
+
+    @Value("${recipeapi.sql.statement-budget.enabled:true}")
+    boolean enabled;
+
+    @Value("${recipeapi.sql.statement-budget.default:50}")
+    int defaultBudget;
+
+    @Value("${recipeapi.sql.statement-budget.enforce:false}")
+    boolean enforce;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (enabled) {
+            StatementCounter.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Map<String, Integer> shapes = StatementCounter.stop();
+        int statements = shapes.values().stream().mapToInt(Integer::intValue).sum();
+
+        StatementBudget declared = declaredBudget(handler);
+        int budget = declared == null ? defaultBudget : declared.value();
+        if (statements <= budget) {
+            return;
+        }
+
+        String route = request.getMethod() + " " + route(request);
+        StringBuilder message = new StringBuilder()
+                .append(route).append(" ran ").append(statements)
+                .append(" SQL statements, over its budget of ").append(budget).append(":");
+        shapes.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(shape -> message.append("\n  ").append(shape.getValue()).append(" x ").append(shape.getKey()));
+        log.warn(message.toString());
+
+        if (enforce && declared != null) {
+            violations.add(message.toString());
+        }
+    }
+
+    /**
+     * @return {@code List<String>} the requests that went over their declared budget while enforced
+     */
+    public List<String> getViolations() {
+        return List.copyOf(violations);
+    }
+
+    public void clearViolations() {
+        violations.clear();
+    }
+
+    private static StatementBudget declaredBudget(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return null;
+        }
+        StatementBudget budget = handlerMethod.getMethodAnnotation(StatementBudget.class);
+        return budget != null ? budget : handlerMethod.getBeanType().getAnnotation(StatementBudget.class);
+    }
+
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+}
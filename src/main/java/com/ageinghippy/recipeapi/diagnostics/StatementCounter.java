@@ -0,0 +1,51 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate statement inspector counting the statements run on the current thread between start and stop,
+ * grouped by query shape: the SQL with literals and the lengths of IN lists taken out, so the same query
+ * repeated for every row of a result (an N+1) shows up as one shape with a high count.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Map<String, Integer>> current = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Override
+    public String inspect(String sql) {
+        Map<String, Integer> shapes = current.get();
+        if (shapes != null) {
+            shapes.merge(shapeOf(sql), 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    public static void start() {
+        current.set(new LinkedHashMap<>());
+    }
+
+    /**
+     * @return {@code Map<String, Integer>} the number of statements run per query shape since start, empty if not started
+     */
+    public static Map<String, Integer> stop() {
+        Map<String, Integer> shapes = current.get();
+        current.remove();
+        return shapes == null ? Map.of() : shapes;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
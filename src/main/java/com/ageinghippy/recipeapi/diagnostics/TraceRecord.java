@@ -0,0 +1,16 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A finished request trace. Offsets and durations are in microseconds, offsets from the start of the request.
+ */
+public record TraceRecord(String id, Instant start, String method, String route, int status,
+                          long durationMicros, int droppedSpans, TraceSpan root) {
+
+    public record TraceSpan(String kind, String name, long offsetMicros, long durationMicros,
+                            Map<String, String> tags, List<TraceSpan> children) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The most recent traces of this node, for GET /admin/traces. Traces slower than the threshold are also
+ * written, one JSON line each, to the slow trace log, a rolling file configured in logback-spring.xml.
+ */
+@Component
+public class TraceStore {
+
+    public static final String SLOW_TRACE_LOGGER = "recipeapi.slow-traces";
+
+    private static final Logger slowTraceLog = LoggerFactory.getLogger(SLOW_TRACE_LOGGER);
+
+    private static final Logger log = LoggerFactory.getLogger(TraceStore.class);
+
+    private final Deque<TraceRecord> recent = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${recipeapi.tracing.recent-traces:200}")
+    int maxRecentTraces;
+
+    @Value("${recipeapi.tracing.slow-threshold-ms:500}")
+    long slowThresholdMillis;
+
+    public void record(TraceRecord trace) {
+        lock.lock();
+        try {
+            recent.addFirst(trace);
+            while (recent.size() > maxRecentTraces) {
+                recent.removeLast();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (trace.durationMicros() >= slowThresholdMillis * 1000) {
+            try {
+                slowTraceLog.info(objectMapper.writeValueAsString(trace));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not write slow trace {}", trace.id(), e);
+            }
+        }
+    }
+
+    /**
+     * @param limit             the most traces to return
+     * @param minDurationMillis only traces at least this slow
+     * @return {@code List<TraceRecord>} the matching traces, most recent first
+     */
+    public List<TraceRecord> getRecentTraces(int limit, long minDurationMillis) {
+        List<TraceRecord> traces = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<TraceRecord> iterator = recent.iterator();
+            while (iterator.hasNext() && traces.size() < limit) {
+                TraceRecord trace = iterator.next();
+                if (trace.durationMicros() >= minDurationMillis * 1000) {
+                    traces.add(trace);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return traces;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * In-process request tracing. TracingFilter starts a trace per request on the request thread, and
+ * every layer opens spans on it: controller, service and repository calls (TracingAspect), cache lookups
+ * (MeteredCache) and JDBC statements (TracingDataSource). Spans are only recorded on the thread that
+ * started the trace, and at most MAX_SPANS per trace.
+ */
+public final class Tracer {
+
+    static final int MAX_SPANS = 1000;
+
+    private static final ThreadLocal<ActiveTrace> current = new ThreadLocal<>();
+
+    private Tracer() {
+    }
+
+    /**
+     * @param kind the layer, e.g. "service" or "cache"
+     * @param name what is being done, e.g. the method called
+     * @return {@code Span} a span, child of the innermost open one. A no-op when no trace is active
+     */
+    public static Span startSpan(String kind, String name) {
+        ActiveTrace trace = current.get();
+        if (trace == null || trace.spans >= MAX_SPANS) {
+            if (trace != null) {
+                trace.droppedSpans++;
+            }
+            return Span.NOOP;
+        }
+        Span span = new Span(trace, trace.current, kind, name);
+        trace.current.addChild(span);
+        trace.current = span;
+        trace.spans++;
+        return span;
+    }
+
+    static Span startTrace(String name) {
+        ActiveTrace trace = new ActiveTrace();
+        trace.root = new Span(trace, null, "request", name);
+        trace.current = trace.root;
+        current.set(trace);
+        return trace.root;
+    }
+
+    static TraceRecord endTrace(String method, String route, int status) {
+        ActiveTrace trace = current.get();
+        current.remove();
+        if (trace == null) {
+            return null;
+        }
+        trace.root.close();
+        TraceRecord.TraceSpan root = trace.root.toRecord(trace.startNanos);
+        return new TraceRecord(trace.id, trace.start, method, route, status, root.durationMicros(),
+                trace.droppedSpans, root);
+    }
+
+    static final class ActiveTrace {
+        final String id = UUID.randomUUID().toString();
+        final Instant start = Instant.now();
+        final long startNanos = System.nanoTime();
+        Span root;
+        Span current;
+        int spans;
+        int droppedSpans;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens a span for every call to a controller, service or repository method.
+ */
+@Aspect
+@Component
+public class TracingAspect {
+
+    @Around("within(com.ageinghippy.recipeapi.controller..*) && @within(org.springframework.web.bind.annotation.RestController)")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("controller", joinPoint);
+    }
+
+    @Around("within(com.ageinghippy.recipeapi.service..*)")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("service", joinPoint);
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("repository", joinPoint);
+    }
+
+    private static Object trace(String kind, ProceedingJoinPoint joinPoint) throws Throwable {
+        String name = typeName(joinPoint) + "." + joinPoint.getSignature().getName();
+        try (Span span = Tracer.startSpan(kind, name)) {
+            try {
+                return joinPoint.proceed();
+            } catch (Throwable e) {
+                span.tag("exception", e.getClass().getSimpleName());
+                throw e;
+            }
+        }
+    }
+
+    // repository methods are often inherited from Spring Data, name them after our repository interface instead
+    private static String typeName(ProceedingJoinPoint joinPoint) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget())) {
+            if (type.getPackageName().startsWith("com.ageinghippy")) {
+                return type.getSimpleName();
+            }
+        }
+        return joinPoint.getSignature().getDeclaringType().getSimpleName();
+    }
+}
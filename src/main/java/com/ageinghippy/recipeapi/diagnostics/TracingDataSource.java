@@ -0,0 +1,81 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Wraps the DataSource so that every JDBC statement execution is a span of the current trace, named after
+ * the shape of its SQL. Everything else is passed straight through, including unwrap, so the pool stays visible.
+ */
+@Component
+public class TracingDataSource implements BeanPostProcessor {
+
+    @Value("${recipeapi.tracing.enabled:true}")
+    boolean enabled;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection connection ? traced(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    private static Connection traced(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                // prepared and callable statements carry their SQL from here, plain ones get it on execute
+                String sql = method.getName().startsWith("prepare") && args != null && args[0] instanceof String s ? s : null;
+                return traced(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Statement traced(Statement statement, String preparedSql) {
+        Class<? extends Statement> type = statement instanceof java.sql.CallableStatement ? java.sql.CallableStatement.class
+                : statement instanceof java.sql.PreparedStatement ? java.sql.PreparedStatement.class : Statement.class;
+        return proxy((Class<Statement>) type, statement, (target, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            try (Span span = Tracer.startSpan("jdbc", sql == null ? method.getName() : StatementCounter.shapeOf(sql))) {
+                span.tag("call", method.getName());
+                return invoke(target, method, args);
+            }
+        });
+    }
+
+    private interface Handler<T> {
+        Object invoke(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
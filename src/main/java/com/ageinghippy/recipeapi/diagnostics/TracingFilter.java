@@ -0,0 +1,50 @@
+package com.ageinghippy.recipeapi.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Traces every request, from before authentication to the response being written.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    TraceStore traceStore;
+
+    @Value("${recipeapi.tracing.enabled:true}")
+    boolean enabled;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!enabled || request.getRequestURI().startsWith("/admin/traces")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Tracer.startTrace(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            TraceRecord trace = Tracer.endTrace(request.getMethod(),
+                    pattern != null ? pattern.toString() : request.getRequestURI(), response.getStatus());
+            if (trace != null) {
+                traceStore.record(trace);
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.ageinghippy.recipeapi.model;
 
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.ArrayList;
@@ -15,6 +17,7 @@ import java.util.Collection;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "user_details")
+@BatchSize(size = KeysetRequest.MAX_LIMIT)
 public class CustomUserDetails implements UserDetails {
 
     @Id
@@ -60,6 +63,7 @@ public class CustomUserDetails implements UserDetails {
 
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinColumn(name = "userId", nullable = false)
+    @BatchSize(size = KeysetRequest.MAX_LIMIT)
     private Collection<Role> authorities = new ArrayList<>();
 
     @OneToOne(cascade = CascadeType.PERSIST, optional = false)
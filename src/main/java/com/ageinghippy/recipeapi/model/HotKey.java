@@ -0,0 +1,29 @@
+package com.ageinghippy.recipeapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+/**
+ * A frequently requested cache entry, as recorded by HotKeyTracker. Hits decay over time so the
+ * table follows current traffic, and the hottest keys are preloaded by CacheWarmUp on startup.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotKey {
+
+    // longer keys, from long search texts, are not tracked
+    public static final int MAX_KEY_LENGTH = 512;
+
+    @Id
+    @Column(length = MAX_KEY_LENGTH)
+    private String cacheKey;
+
+    @Column(nullable = false)
+    private long hits;
+}
@@ -1,5 +1,6 @@
 package com.ageinghippy.recipeapi.model;
 
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
 import com.ageinghippy.recipeapi.validator.ListSize;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -10,12 +11,14 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.Serial;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +28,11 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_recipe_name", columnList = "name"),
+        @Index(name = "idx_recipe_difficulty_rating", columnList = "difficulty_rating"),
+        @Index(name = "idx_recipe_minutes_to_make", columnList = "minutes_to_make"),
+        @Index(name = "idx_recipe_review_rating", columnList = "review_rating")})
 public class Recipe implements Serializable {
 
     @Serial
@@ -63,28 +71,54 @@ public class Recipe implements Serializable {
         return userName;
     }
 
-    @Transient
+    // review aggregates are maintained by atomic updates in RecipeRepo, never written through the entity
+    @Column(insertable = false, updatable = false)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Integer reviewRating;
 
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer reviewCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    @JsonIgnore
+    private Integer ratingSum = 0;
+
+    // collections are batch fetched for a whole page of recipes at once, see KeysetRequest.MAX_LIMIT
     @ListSize(minSize = 1)
     @Valid
     @OneToMany(cascade = CascadeType.ALL)
     @JoinColumn(name = "recipe_id", nullable = false)
+    @BatchSize(size = KeysetRequest.MAX_LIMIT)
     private List<Ingredient> ingredients = new ArrayList<>();
 
     @ListSize(minSize = 1)
     @Valid
     @OneToMany(cascade = CascadeType.ALL)
     @JoinColumn(name = "recipe_id", nullable = false)
+    @BatchSize(size = KeysetRequest.MAX_LIMIT)
     private List<Step> steps = new ArrayList<>();
 
+    // reviews are written through ReviewRepo, so recipe writes never merge them
     @Valid
-    @OneToMany(cascade = CascadeType.ALL)
-    @JoinColumn(name = "recipe_id", nullable = false)
+    @OneToMany(mappedBy = "recipe", cascade = {CascadeType.PERSIST, CascadeType.REMOVE})
+    @BatchSize(size = KeysetRequest.MAX_LIMIT)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private List<Review> reviews;
 
+    // bumped together with updatedAt by every write to the recipe or its reviews, see RecipeRepo.touch.
+    // Read only like the review aggregates, so concurrent writes each get a version of their own
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private Long version = 0L;
+
+    @Column(insertable = false, updatable = false)
+    @JsonIgnore
+    private Instant updatedAt;
+
     @Transient
     @JsonIgnore
     private URI locationURI;
@@ -100,13 +134,4 @@ public class Recipe implements Serializable {
             // exception should stop here.
         }
     }
-
-    @PostLoad
-    public void calculateReviewRating() {
-        Integer reviewAverage = null;
-        if (!getReviews().isEmpty()) {
-            reviewAverage = getReviews().stream().map(Review::getRating).reduce(0, Integer::sum) / getReviews().size();
-        }
-        this.reviewRating = reviewAverage;
-    }
 }
@@ -12,6 +12,7 @@ import lombok.*;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.Instant;
 
 
 @Entity
@@ -34,6 +35,13 @@ public class Review implements Serializable {
     @JsonIgnore
     private CustomUserDetails user;
 
+    // reviews own the relationship so they can be inserted against a reference to the recipe,
+    // without loading or rewriting the recipe and its other reviews
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "recipe_id", nullable = false)
+    @JsonIgnore
+    private Recipe recipe;
+
     @NotNull
     @Min(value = 1, message = "must be between 1 and 10")
     @Max(value = 10, message = "must be between 1 and 10")
@@ -42,6 +50,16 @@ public class Review implements Serializable {
     @RequiredAndNotGoofy
     private String description;
 
+    // bumped together with updatedAt by every write to the review, see ReviewRepo.touch
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private Long version = 0L;
+
+    @Column(insertable = false, updatable = false)
+    @JsonIgnore
+    private Instant updatedAt;
+
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     public String getAuthor() {
         String userName = null;
@@ -1,8 +1,13 @@
 package com.ageinghippy.recipeapi.model;
 
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+
+import java.io.Serial;
+import java.io.Serializable;
 
 @Entity
 @Getter
@@ -11,7 +16,11 @@ import lombok.*;
 @NoArgsConstructor
 @Builder
 @Table(name = "user_meta")
-public class UserMeta {
+@BatchSize(size = KeysetRequest.MAX_LIMIT)
+public class UserMeta implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -6237046513398512117L;
 
     @Id
     @GeneratedValue
@@ -0,0 +1,21 @@
+package com.ageinghippy.recipeapi.paging;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing.
+ *
+ * @param content    the items on this page
+ * @param nextCursor the cursor to request the following page with, null on the last page
+ */
+public record KeysetPage<T>(List<T> content, String nextCursor) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -3049372146152380727L;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ageinghippy.recipeapi.paging;
+
+import com.ageinghippy.recipeapi.utils.Utils;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A request for one page of a keyset paginated listing. The cursor is an opaque token naming the sort
+ * it was issued for and the sort value and id of the last item of the previous page, so the next page
+ * is read with an index range scan from that position instead of an OFFSET.
+ */
+public record KeysetRequest(RecipeSort sort, boolean descending, String cursor, int limit) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 5187463929283616201L;
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final String SEPARATOR = "|";
+
+    public KeysetRequest {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (cursor != null) {
+            decode(sort, descending, cursor);
+        }
+    }
+
+    public static KeysetRequest of(String sort, String direction, String cursor, Integer limit) {
+        String order = Utils.nvl(direction, "asc");
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("direction must be either asc or desc");
+        }
+        return new KeysetRequest(
+                RecipeSort.fromProperty(Utils.nvl(sort, RecipeSort.ID.getProperty())),
+                order.equalsIgnoreCase("desc"),
+                cursor,
+                Utils.nvl(limit, DEFAULT_LIMIT));
+    }
+
+    public static KeysetRequest byId(String cursor, Integer limit) {
+        return new KeysetRequest(RecipeSort.ID, false, cursor, Utils.nvl(limit, DEFAULT_LIMIT));
+    }
+
+    public static KeysetRequest firstPage() {
+        return byId(null, null);
+    }
+
+    public boolean isFirstPage() {
+        return cursor == null;
+    }
+
+    public boolean isDefaultFirstPage() {
+        return isFirstPage() && sort == RecipeSort.ID && !descending && limit == DEFAULT_LIMIT;
+    }
+
+    /**
+     * @return {@code Position} the position after which this page starts, or null for the first page
+     */
+    public Position position() {
+        return cursor == null ? null : decode(sort, descending, cursor);
+    }
+
+    public String cursorAfter(Long id, Object value) {
+        String token = sort.getProperty() + SEPARATOR +
+                (descending ? "desc" : "asc") + SEPARATOR +
+                id + SEPARATOR +
+                (value == null ? "N" : "V" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Build the page from the rows read for this request. Queries read {@code limit + 1} rows so
+     * that the presence of the extra row tells whether a next page exists.
+     *
+     * @param rows    up to {@code limit + 1} rows in sort order
+     * @param idOf    the id of a row
+     * @param valueOf the sort value of a row
+     * @return {@code KeysetPage} at most {@code limit} rows and the cursor to the next page, if any
+     */
+    public <T> KeysetPage<T> toPage(List<T> rows, Function<T, Long> idOf, Function<T, Object> valueOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(List.copyOf(rows), null);
+        }
+        List<T> content = List.copyOf(rows.subList(0, limit));
+        T last = content.getLast();
+        return new KeysetPage<>(content, cursorAfter(idOf.apply(last), valueOf.apply(last)));
+    }
+
+    /**
+     * @return {@code String} a key identifying this page, used as part of list cache keys
+     */
+    public String cacheKey() {
+        return sort.getProperty() + ":" + (descending ? "desc" : "asc") + ":" + limit + ":" + Utils.nvl(cursor, "");
+    }
+
+    private static Position decode(RecipeSort sort, boolean descending, String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The cursor provided is not valid");
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("The cursor provided is not valid");
+        }
+        if (!parts[0].equals(sort.getProperty()) || !parts[1].equals(descending ? "desc" : "asc")) {
+            throw new IllegalArgumentException("The cursor provided was issued for a different sort order");
+        }
+        try {
+            Long id = Long.valueOf(parts[2]);
+            Object value = parts[3].startsWith("V") ? sort.parse(parts[3].substring(1)) : null;
+            return new Position(id, value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The cursor provided is not valid");
+        }
+    }
+
+    public record Position(Long id, Object value) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.ageinghippy.recipeapi.paging;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+public enum RecipeSort {
+    ID("id", Long::valueOf, Recipe::getId),
+    NAME("name", value -> value, Recipe::getName),
+    DIFFICULTY_RATING("difficultyRating", Integer::valueOf, Recipe::getDifficultyRating),
+    MINUTES_TO_MAKE("minutesToMake", Integer::valueOf, Recipe::getMinutesToMake),
+    REVIEW_RATING("reviewRating", Integer::valueOf, Recipe::getReviewRating);
+
+    private final String property;
+    private final Function<String, Object> parser;
+    private final Function<Recipe, Object> extractor;
+
+    RecipeSort(String property, Function<String, Object> parser, Function<Recipe, Object> extractor) {
+        this.property = property;
+        this.parser = parser;
+        this.extractor = extractor;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    // only the review rating can be null, every other sort property is a non-null column
+    public boolean isNullable() {
+        return this == REVIEW_RATING;
+    }
+
+    public Object valueOf(Recipe recipe) {
+        return extractor.apply(recipe);
+    }
+
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    public static RecipeSort fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(sort -> sort.property.equalsIgnoreCase(property))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Cannot sort by '" + property + "'. Valid sort properties are " +
+                                "id, name, difficultyRating, minutesToMake and reviewRating"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.ageinghippy.recipeapi.repository;
+
+import com.ageinghippy.recipeapi.model.HotKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface HotKeyRepo extends JpaRepository<HotKey, String> {
+
+    List<HotKey> findAllByOrderByHitsDesc(Pageable pageable);
+
+    // a single statement, so nodes flushing the same key at once add to it rather than both inserting it
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO hot_key (cache_key, hits) VALUES (:cacheKey, :hits)
+            ON DUPLICATE KEY UPDATE hits = hits + :hits
+            """,
+            nativeQuery = true)
+    int addHits(@Param("cacheKey") String cacheKey, @Param("hits") long hits);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE HotKey h SET h.hits = h.hits / 2")
+    int halveHits();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM HotKey h WHERE h.hits = 0")
+    int deleteCold();
+}
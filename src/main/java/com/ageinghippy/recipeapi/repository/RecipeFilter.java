@@ -0,0 +1,49 @@
+package com.ageinghippy.recipeapi.repository;
+
+import java.util.Collection;
+
+/**
+ * Optional criteria for recipe listings. Null components are not applied.
+ * The ids, when given, restrict the listing to those recipes.
+ */
+public record RecipeFilter(String name,
+                           Integer maximumDifficultyRating,
+                           String author,
+                           Integer minimumReviewRating,
+                           Collection<Long> ids) {
+
+    public static RecipeFilter none() {
+        return new RecipeFilter(null, null, null, null, null);
+    }
+
+    public static RecipeFilter byName(String name) {
+        return new RecipeFilter(name, null, null, null, null);
+    }
+
+    public static RecipeFilter byNameAndMaximumDifficulty(String name, int maximumDifficultyRating) {
+        return new RecipeFilter(name, maximumDifficultyRating, null, null, null);
+    }
+
+    public static RecipeFilter byAuthor(String author) {
+        return new RecipeFilter(null, null, author, null, null);
+    }
+
+    public static RecipeFilter byMinimumReviewRating(int minimumReviewRating) {
+        return new RecipeFilter(null, null, null, minimumReviewRating, null);
+    }
+
+    public static RecipeFilter byIds(Collection<Long> ids) {
+        return new RecipeFilter(null, null, null, null, ids);
+    }
+
+    /**
+     * The same filter narrowed to the ids of the recipes its name matches, as found by a search index.
+     * The name criterion is kept, so a recipe the index still holds under an old name is not listed.
+     *
+     * @param ids
+     * @return {@code RecipeFilter} the filter narrowed by ids
+     */
+    public RecipeFilter withNameMatches(Collection<Long> ids) {
+        return new RecipeFilter(name, maximumDifficultyRating, author, minimumReviewRating, ids);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ageinghippy.recipeapi.repository;
+
+/**
+ * The name of an ingredient with the id of its recipe, read without loading either entity.
+ */
+public record RecipeIngredientName(Long recipeId, String name) {
+}
@@ -0,0 +1,7 @@
+package com.ageinghippy.recipeapi.repository;
+
+/**
+ * The id and name of a recipe, read without loading the entity.
+ */
+public record RecipeName(Long id, String name) {
+}
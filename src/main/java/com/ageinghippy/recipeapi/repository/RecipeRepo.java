@@ -1,29 +1,93 @@
 package com.ageinghippy.recipeapi.repository;
 
 import com.ageinghippy.recipeapi.model.Recipe;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface RecipeRepo extends JpaRepository<Recipe, Long> {
+public interface RecipeRepo extends JpaRepository<Recipe, Long>, RecipeRepoCustom {
 
-    List<Recipe> findByNameContainingIgnoreCase(String name);
+    @Query("SELECT r.user.username FROM Recipe r WHERE r.id = :recipeId")
+    Optional<String> findAuthorUsernameById(@Param("recipeId") Long recipeId);
 
-    List<Recipe> findByUser_username(String name);
+    // review_rating is assigned first so that it is computed from the pre-update values
+    // whether the database evaluates SET assignments left to right (MySQL) or all at once
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE	recipe
+            SET		review_rating = FLOOR((rating_sum + :ratingDelta) / NULLIF(review_count + :countDelta, 0)),
+            		review_count = review_count + :countDelta,
+            		rating_sum = rating_sum + :ratingDelta,
+            		version = version + 1,
+            		updated_at = CURRENT_TIMESTAMP(6)
+            WHERE	id = :recipeId
+            """,
+            nativeQuery = true)
+    int applyReviewDelta(@Param("recipeId") Long recipeId,
+                         @Param("countDelta") int countDelta,
+                         @Param("ratingDelta") int ratingDelta);
 
+    @Modifying
+    @Transactional
     @Query(value = """
-            SELECT	rc.*
-            FROM	recipe rc
-            JOIN 	review rv
-            ON		rc.id = rv.recipe_id
-            GROUP BY rc.id
-            HAVING sum(rv.rating) / count(rv.id) >= ?
+            UPDATE	recipe
+            SET		review_count = (SELECT COUNT(*) FROM review rv WHERE rv.recipe_id = recipe.id),
+            		rating_sum = (SELECT COALESCE(SUM(rv.rating), 0) FROM review rv WHERE rv.recipe_id = recipe.id),
+            		review_rating = (SELECT FLOOR(SUM(rv.rating) / COUNT(rv.id)) FROM review rv WHERE rv.recipe_id = recipe.id),
+            		version = version + 1
+            WHERE	id BETWEEN ? AND ?
             """,
             nativeQuery = true)
-    List<Recipe> findAllWithMinimumReviewRating(int minimumReviewRating);
+    int backfillReviewAggregates(long fromId, long toId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recipe SET version = version + 1, updated_at = CURRENT_TIMESTAMP(6) WHERE id = :recipeId",
+            nativeQuery = true)
+    int touch(@Param("recipeId") Long recipeId);
+
+    @Query("SELECT new com.ageinghippy.recipeapi.repository.ResourceVersion(r.version, r.updatedAt) FROM Recipe r WHERE r.id = :recipeId")
+    Optional<ResourceVersion> findVersionById(@Param("recipeId") Long recipeId);
+
+    @Query("SELECT new com.ageinghippy.recipeapi.repository.RecipeName(r.id, r.name) FROM Recipe r WHERE r.id > :afterId ORDER BY r.id")
+    List<RecipeName> findNamesAfter(@Param("afterId") long afterId, Pageable page);
+
+    @Query("SELECT new com.ageinghippy.recipeapi.repository.RecipeIngredientName(r.id, i.name) FROM Recipe r JOIN r.ingredients i WHERE r.id BETWEEN :fromId AND :toId")
+    List<RecipeIngredientName> findIngredientNamesBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // what RecipeIngredientIndex answers before it is built, comparing names trimmed and lower-cased
+    @Query("""
+            SELECT r.id FROM Recipe r JOIN r.ingredients i
+            WHERE LOWER(TRIM(i.name)) IN :include
+            GROUP BY r.id
+            HAVING COUNT(DISTINCT LOWER(TRIM(i.name))) = :includeCount
+            ORDER BY r.id""")
+    List<Long> findIdsUsingAll(@Param("include") Collection<String> include, @Param("includeCount") long includeCount);
+
+    @Query("""
+            SELECT r.id FROM Recipe r JOIN r.ingredients i
+            WHERE LOWER(TRIM(i.name)) IN :include
+            AND r.id NOT IN (SELECT e.id FROM Recipe e JOIN e.ingredients x WHERE LOWER(TRIM(x.name)) IN :exclude)
+            GROUP BY r.id
+            HAVING COUNT(DISTINCT LOWER(TRIM(i.name))) = :includeCount
+            ORDER BY r.id""")
+    List<Long> findIdsUsingAllAndNone(@Param("include") Collection<String> include,
+                                      @Param("exclude") Collection<String> exclude,
+                                      @Param("includeCount") long includeCount);
+
+    @Query("SELECT MIN(r.id) FROM Recipe r")
+    Long findMinimumId();
 
-    List<Recipe> findByNameContainingIgnoreCaseAndDifficultyRatingLessThanEqual( String name,int maximumDifficultyRating);
+    @Query("SELECT MAX(r.id) FROM Recipe r")
+    Long findMaximumId();
 }
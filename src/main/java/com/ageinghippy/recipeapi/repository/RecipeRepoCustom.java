@@ -0,0 +1,10 @@
+package com.ageinghippy.recipeapi.repository;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+
+public interface RecipeRepoCustom {
+
+    KeysetPage<Recipe> findPage(RecipeFilter filter, KeysetRequest page);
+}
@@ -0,0 +1,112 @@
+package com.ageinghippy.recipeapi.repository;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.paging.RecipeSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class RecipeRepoCustomImpl implements RecipeRepoCustom {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public KeysetPage<Recipe> findPage(RecipeFilter filter, KeysetRequest page) {
+        if (filter.ids() != null && filter.ids().isEmpty()) {
+            // nothing can match, and an empty IN list is not valid JPQL
+            return page.toPage(List.of(), Recipe::getId, page.sort()::valueOf);
+        }
+        // the author is fetched with the page, its collections are batch fetched (see Recipe)
+        StringBuilder jpql = new StringBuilder("SELECT r FROM Recipe r JOIN FETCH r.user u WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+
+        appendFilter(jpql, parameters, filter);
+        appendKeyset(jpql, parameters, page);
+        appendOrderBy(jpql, page);
+
+        TypedQuery<Recipe> query = entityManager.createQuery(jpql.toString(), Recipe.class);
+        parameters.forEach(query::setParameter);
+        // read one extra row to find out whether there is a next page
+        List<Recipe> recipes = query.setMaxResults(page.limit() + 1).getResultList();
+
+        return page.toPage(recipes, Recipe::getId, page.sort()::valueOf);
+    }
+
+    private void appendFilter(StringBuilder jpql, Map<String, Object> parameters, RecipeFilter filter) {
+        if (filter.name() != null) {
+            jpql.append(" AND LOWER(r.name) LIKE :name ESCAPE '!'");
+            parameters.put("name", "%" + escapeLike(filter.name().toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (filter.ids() != null) {
+            jpql.append(" AND r.id IN :ids");
+            parameters.put("ids", filter.ids());
+        }
+        if (filter.maximumDifficultyRating() != null) {
+            jpql.append(" AND r.difficultyRating <= :maximumDifficultyRating");
+            parameters.put("maximumDifficultyRating", filter.maximumDifficultyRating());
+        }
+        if (filter.author() != null) {
+            jpql.append(" AND u.username = :author");
+            parameters.put("author", filter.author());
+        }
+        if (filter.minimumReviewRating() != null) {
+            jpql.append(" AND r.reviewRating >= :minimumReviewRating");
+            parameters.put("minimumReviewRating", filter.minimumReviewRating());
+        }
+    }
+
+    private void appendKeyset(StringBuilder jpql, Map<String, Object> parameters, KeysetRequest page) {
+        KeysetRequest.Position position = page.position();
+        if (position == null) {
+            return;
+        }
+
+        RecipeSort sort = page.sort();
+        String property = "r." + sort.getProperty();
+        String operator = page.descending() ? "<" : ">";
+        parameters.put("afterId", position.id());
+
+        if (sort == RecipeSort.ID) {
+            jpql.append(" AND r.id ").append(operator).append(" :afterId");
+        } else if (position.value() != null) {
+            parameters.put("afterValue", position.value());
+            jpql.append(" AND (").append(property).append(" ").append(operator).append(" :afterValue")
+                    .append(" OR (").append(property).append(" = :afterValue AND r.id ").append(operator).append(" :afterId)");
+            if (sort.isNullable() && page.descending()) {
+                // nulls sort last when descending
+                jpql.append(" OR ").append(property).append(" IS NULL");
+            }
+            jpql.append(")");
+        } else if (page.descending()) {
+            jpql.append(" AND ").append(property).append(" IS NULL AND r.id < :afterId");
+        } else {
+            // nulls sort first when ascending
+            jpql.append(" AND ((").append(property).append(" IS NULL AND r.id > :afterId) OR ")
+                    .append(property).append(" IS NOT NULL)");
+        }
+    }
+
+    private void appendOrderBy(StringBuilder jpql, KeysetRequest page) {
+        // relies on the database default of ordering nulls lowest (MySQL and H2) rather than an
+        // explicit NULLS FIRST/LAST, which MySQL can only emulate without using the index
+        String direction = page.descending() ? " DESC" : " ASC";
+        jpql.append(" ORDER BY ");
+        if (page.sort() != RecipeSort.ID) {
+            jpql.append("r.").append(page.sort().getProperty()).append(direction).append(", ");
+        }
+        jpql.append("r.id").append(direction);
+    }
+
+    private static String escapeLike(String value) {
+        // '!' rather than a backslash, which MySQL would also treat as an escape inside the string literal
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,9 @@
+package com.ageinghippy.recipeapi.repository;
+
+import java.time.Instant;
+
+/**
+ * The version and last modification time of a recipe or review, read without loading the entity.
+ */
+public record ResourceVersion(Long version, Instant updatedAt) {
+}
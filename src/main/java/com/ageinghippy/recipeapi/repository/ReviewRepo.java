@@ -1,14 +1,47 @@
 package com.ageinghippy.recipeapi.repository;
 
 import com.ageinghippy.recipeapi.model.Review;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReviewRepo extends JpaRepository<Review,Long> {
 
-    List<Review> findByUser_username(String username);
+    @Query("SELECT rv FROM Review rv JOIN FETCH rv.user u WHERE u.username = :username AND rv.id > :afterId ORDER BY rv.id")
+    List<Review> findPageByUsername(@Param("username") String username,
+                                    @Param("afterId") long afterId,
+                                    Pageable pageable);
 
+    @Query("SELECT rv FROM Review rv JOIN FETCH rv.user WHERE rv.recipe.id = :recipeId AND rv.id > :afterId ORDER BY rv.id")
+    List<Review> findPageByRecipeId(@Param("recipeId") Long recipeId,
+                                    @Param("afterId") long afterId,
+                                    Pageable pageable);
+
+    @Query("SELECT rv.user.username FROM Review rv WHERE rv.id = :reviewId")
+    Optional<String> findAuthorUsernameById(@Param("reviewId") Long reviewId);
+
+    // holds the review row until the transaction ends, so concurrent writes to one review take turns and each
+    // applies its rating delta against the rating the previous one left
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT rv FROM Review rv WHERE rv.id = :reviewId")
+    Optional<Review> findByIdForUpdate(@Param("reviewId") Long reviewId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE review SET version = version + 1, updated_at = CURRENT_TIMESTAMP(6) WHERE id = :reviewId",
+            nativeQuery = true)
+    int touch(@Param("reviewId") Long reviewId);
+
+    @Query("SELECT new com.ageinghippy.recipeapi.repository.ResourceVersion(rv.version, rv.updatedAt) FROM Review rv WHERE rv.id = :reviewId")
+    Optional<ResourceVersion> findVersionById(@Param("reviewId") Long reviewId);
 }
@@ -0,0 +1,210 @@
+package com.ageinghippy.recipeapi.search;
+
+import java.util.Arrays;
+
+/**
+ * The sorted ids of the recipes holding one term of an inverted index, stored as the gaps between consecutive
+ * ids in a variable length encoding: seven bits a byte, the high bit set on every byte but the last of a gap.
+ * Common terms hold dense runs of ids, so most gaps fit in one or two bytes instead of the eight of a long.
+ * <p>
+ * The list is read front to back through a Cursor. New recipes get the highest ids, so most additions are
+ * appends. Any other addition, and every removal, goes to a small sorted delta that cursors merge as they
+ * read, and the list is only re-encoded once the delta outgrows an eighth of it.
+ * <p>
+ * The owning index knows which recipes each list holds, so ids are only added when absent and removed when
+ * present. Not thread safe, the owning index guards it.
+ */
+final class CompressedPostingList {
+
+    // the delta is merged into the encoded ids once it holds more than this many, or an eighth of the list
+    static final int MIN_COMPACTION_THRESHOLD = 16;
+
+    private byte[] bytes = new byte[8];
+
+    // bytes in use
+    private int length;
+
+    // ids encoded in the bytes, including any since removed
+    private int encodedSize;
+
+    private long last;
+
+    // ids added out of order, not encoded yet; null while empty
+    private PostingList added;
+
+    // encoded ids that were removed; null while empty
+    private PostingList removed;
+
+    /**
+     * @param id an id not already in the list
+     */
+    void add(long id) {
+        if (encodedSize == 0 || id > last) {
+            append(id - last);
+            last = id;
+            encodedSize++;
+        } else if (removed != null && removed.remove(id)) {
+            // back in the encoded ids
+        } else {
+            if (added == null) {
+                added = new PostingList();
+            }
+            added.add(id);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * @param id an id in the list
+     */
+    void remove(long id) {
+        if (added == null || !added.remove(id)) {
+            if (removed == null) {
+                removed = new PostingList();
+            }
+            removed.add(id);
+        }
+        compactIfNeeded();
+    }
+
+    int size() {
+        return encodedSize - sizeOf(removed) + sizeOf(added);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // bytes in use by the encoded ids
+    int encodedLength() {
+        return length;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void compactIfNeeded() {
+        int delta = sizeOf(added) + sizeOf(removed);
+        if (delta > Math.max(MIN_COMPACTION_THRESHOLD, encodedSize / 8)) {
+            encode(toArray());
+        }
+    }
+
+    private long[] toArray() {
+        long[] ids = new long[size()];
+        Cursor cursor = cursor();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = cursor.next();
+        }
+        return ids;
+    }
+
+    private void encode(long[] ids) {
+        bytes = new byte[Math.max(8, ids.length * 2)];
+        length = 0;
+        encodedSize = 0;
+        last = 0;
+        added = null;
+        removed = null;
+        for (long id : ids) {
+            append(id - last);
+            last = id;
+            encodedSize++;
+        }
+    }
+
+    private void append(long gap) {
+        if (bytes.length - length < 10) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+        }
+        while (gap >= 0x80) {
+            bytes[length++] = (byte) (gap | 0x80);
+            gap >>>= 7;
+        }
+        bytes[length++] = (byte) gap;
+    }
+
+    private static int sizeOf(PostingList ids) {
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Reads the ids in ascending order, the encoded ids merged with the delta. Only valid until the list is
+     * next changed.
+     */
+    final class Cursor {
+
+        // next byte to decode
+        private int offset;
+
+        // last id decoded from the bytes
+        private long decoded;
+
+        // next encoded id that was not removed, -1 when there are no more
+        private long nextEncoded;
+
+        // next position in the added ids
+        private int addedIndex;
+
+        // last id returned, -1 when there are no more
+        private long current;
+
+        private boolean started;
+
+        /**
+         * @return {@code long} the next id, -1 when there are no more
+         */
+        long next() {
+            if (!started) {
+                started = true;
+                nextEncoded = readEncoded();
+            } else if (current == -1) {
+                return -1;
+            }
+            long nextAdded = added != null && addedIndex < added.size() ? added.get(addedIndex) : -1;
+            if (nextAdded != -1 && (nextEncoded == -1 || nextAdded < nextEncoded)) {
+                addedIndex++;
+                current = nextAdded;
+            } else {
+                current = nextEncoded;
+                if (nextEncoded != -1) {
+                    nextEncoded = readEncoded();
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Move forward to the first id at or after the target, the current id if it already is.
+         *
+         * @param target
+         * @return {@code long} that id, -1 when there is none
+         */
+        long skipTo(long target) {
+            long id = started ? current : next();
+            while (id != -1 && id < target) {
+                id = next();
+            }
+            return id;
+        }
+
+        private long readEncoded() {
+            while (offset < length) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[offset++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                decoded += gap;
+                if (removed == null || !removed.contains(decoded)) {
+                    return decoded;
+                }
+            }
+            return -1;
+        }
+    }
+}
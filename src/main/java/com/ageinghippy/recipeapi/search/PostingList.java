@@ -0,0 +1,56 @@
+package com.ageinghippy.recipeapi.search;
+
+import java.util.Arrays;
+
+/**
+ * The sorted ids of the recipes holding one term of an inverted index. Ids are kept in a plain array
+ * rather than a set of boxed Longs, and new recipes get the highest ids, so most additions are appends.
+ * Not thread safe, the owning index guards it.
+ */
+final class PostingList {
+
+    private long[] ids = new long[4];
+
+    private int size;
+
+    boolean add(long id) {
+        int position = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -(position + 1);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,256 @@
+package com.ageinghippy.recipeapi.search;
+
+import com.ageinghippy.recipeapi.diagnostics.Span;
+import com.ageinghippy.recipeapi.diagnostics.Tracer;
+import com.ageinghippy.recipeapi.model.Ingredient;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.repository.RecipeIngredientName;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index from ingredient names to the recipes using them, answering "what can I cook with
+ * these" searches without joining the ingredient table. Names are compared once normalised (trimmed, runs of
+ * whitespace collapsed and lower-cased), and each maps to a CompressedPostingList of recipe ids.
+ */
+@Component
+public class RecipeIngredientIndex extends SearchIndex<RecipeIngredientIndex.Postings, RecipeIngredientIndex.IngredientChange> {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Value("${recipeapi.search.ingredient-index.rebuild-batch-size:5000}")
+    int rebuildBatchSize;
+
+    /**
+     * The ids of the recipes using every included ingredient and none of the excluded ones, in ascending order.
+     * Until the index is built they are read from the database instead.
+     *
+     * @param include names of ingredients the recipes must use
+     * @param exclude names of ingredients the recipes must not use
+     * @return {@code List<Long>} the matching ids
+     * @throws IllegalArgumentException if no ingredient is included
+     */
+    public List<Long> findRecipes(Collection<String> include, Collection<String> exclude) {
+        Set<String> included = normaliseAll(include);
+        Set<String> excluded = normaliseAll(exclude);
+        if (included.isEmpty()) {
+            throw new IllegalArgumentException("At least one ingredient to include is required");
+        }
+        try (Span span = Tracer.startSpan("search", "recipeIngredients")) {
+            List<Long> matches = read(postings -> postings.find(included, excluded));
+            if (matches == null) {
+                span.tag("source", "database");
+                matches = excluded.isEmpty()
+                        ? recipeRepo.findIdsUsingAll(included, included.size())
+                        : recipeRepo.findIdsUsingAllAndNone(included, excluded, included.size());
+            }
+            span.tag("matches", matches.size());
+            return matches;
+        }
+    }
+
+    /**
+     * Whether a recipe with these ingredients would be found by findRecipes, for cached listings to check
+     * writes against.
+     *
+     * @param ingredientNames the names of the ingredients of the recipe
+     * @param include
+     * @param exclude
+     * @return {@code boolean} true if the recipe uses every included ingredient and none of the excluded ones
+     */
+    public static boolean matches(Collection<String> ingredientNames, Collection<String> include, Collection<String> exclude) {
+        Set<String> names = normaliseAll(ingredientNames);
+        return names.containsAll(normaliseAll(include)) && normaliseAll(exclude).stream().noneMatch(names::contains);
+    }
+
+    /**
+     * Index the current ingredients of the recipe, once the transaction creating or updating it commits.
+     *
+     * @param recipe
+     */
+    public void put(Recipe recipe) {
+        publishAfterCommit(new IngredientChange(recipe.getId(),
+                List.copyOf(normaliseAll(recipe.getIngredients().stream().map(Ingredient::getName).toList()))));
+    }
+
+    /**
+     * Drop the recipe from the index, once the transaction deleting it commits.
+     *
+     * @param recipeId
+     */
+    public void remove(Long recipeId) {
+        publishAfterCommit(new IngredientChange(recipeId, null));
+    }
+
+    @Override
+    protected String topicName() {
+        return "recipeIngredientIndexUpdates";
+    }
+
+    @Override
+    protected Postings load() {
+        Postings postings = new Postings();
+        Long minimumId = recipeRepo.findMinimumId();
+        Long maximumId = recipeRepo.findMaximumId();
+        if (minimumId == null) {
+            return postings;
+        }
+        for (long fromId = minimumId; fromId <= maximumId; fromId += rebuildBatchSize) {
+            Map<Long, List<String>> batch = recipeRepo.findIngredientNamesBetween(fromId, fromId + rebuildBatchSize - 1)
+                    .stream()
+                    .collect(Collectors.groupingBy(RecipeIngredientName::recipeId,
+                            Collectors.mapping(RecipeIngredientName::name, Collectors.toList())));
+            // ascending, so every posting list is built by appends
+            batch.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(recipe -> postings.put(recipe.getKey(), normaliseAll(recipe.getValue())));
+        }
+        return postings;
+    }
+
+    @Override
+    protected void apply(Postings postings, IngredientChange change) {
+        if (change.names() == null) {
+            postings.remove(change.recipeId());
+        } else {
+            postings.put(change.recipeId(), new LinkedHashSet<>(change.names()));
+        }
+    }
+
+    @Override
+    protected int size(Postings postings) {
+        return postings.size();
+    }
+
+    static String normalise(String name) {
+        return WHITESPACE.matcher(name.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> normaliseAll(Collection<String> names) {
+        return names.stream()
+                .filter(Objects::nonNull)
+                .map(RecipeIngredientIndex::normalise)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * The normalised ingredient names of a recipe, none for a deleted recipe.
+     */
+    record IngredientChange(Long recipeId, List<String> names) implements Serializable {
+    }
+
+    static final class Postings {
+
+        private final Map<String, CompressedPostingList> recipesByIngredient = new HashMap<>();
+
+        // what each recipe is indexed under, so an update can take it out of the lists it left
+        private final Map<Long, String[]> ingredientsByRecipe = new HashMap<>();
+
+        void put(Long recipeId, Set<String> names) {
+            String[] previous = ingredientsByRecipe.put(recipeId, names.toArray(String[]::new));
+            if (previous != null) {
+                for (String name : previous) {
+                    if (!names.contains(name)) {
+                        removePosting(name, recipeId);
+                    }
+                }
+            }
+            Set<String> kept = previous == null ? Set.of() : Set.of(previous);
+            for (String name : names) {
+                if (!kept.contains(name)) {
+                    recipesByIngredient.computeIfAbsent(name, n -> new CompressedPostingList()).add(recipeId);
+                }
+            }
+        }
+
+        void remove(Long recipeId) {
+            String[] previous = ingredientsByRecipe.remove(recipeId);
+            if (previous != null) {
+                for (String name : previous) {
+                    removePosting(name, recipeId);
+                }
+            }
+        }
+
+        private void removePosting(String name, Long recipeId) {
+            CompressedPostingList recipeIds = recipesByIngredient.get(name);
+            if (recipeIds != null) {
+                recipeIds.remove(recipeId);
+                if (recipeIds.isEmpty()) {
+                    recipesByIngredient.remove(name);
+                }
+            }
+        }
+
+        List<Long> find(Set<String> include, Set<String> exclude) {
+            List<CompressedPostingList> included = new ArrayList<>();
+            for (String name : include) {
+                CompressedPostingList recipeIds = recipesByIngredient.get(name);
+                if (recipeIds == null) {
+                    return List.of();
+                }
+                included.add(recipeIds);
+            }
+            included.sort(Comparator.comparingInt(CompressedPostingList::size));
+
+            // walk the rarest ingredient, moving the cursors of the others forward to each of its recipes
+            CompressedPostingList.Cursor rarest = included.getFirst().cursor();
+            List<CompressedPostingList.Cursor> required = included.subList(1, included.size()).stream()
+                    .map(CompressedPostingList::cursor).toList();
+            List<CompressedPostingList.Cursor> excluded = exclude.stream()
+                    .map(recipesByIngredient::get)
+                    .filter(Objects::nonNull)
+                    .map(CompressedPostingList::cursor).toList();
+
+            List<Long> matches = new ArrayList<>();
+            for (long id = rarest.next(); id != -1; id = rarest.next()) {
+                if (allAt(required, id) && noneAt(excluded, id)) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        }
+
+        private static boolean allAt(List<CompressedPostingList.Cursor> cursors, long id) {
+            for (CompressedPostingList.Cursor cursor : cursors) {
+                if (cursor.skipTo(id) != id) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean noneAt(List<CompressedPostingList.Cursor> cursors, long id) {
+            for (CompressedPostingList.Cursor cursor : cursors) {
+                if (cursor.skipTo(id) == id) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int size() {
+            return ingredientsByRecipe.size();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.ageinghippy.recipeapi.search;
+
+import com.ageinghippy.recipeapi.diagnostics.Span;
+import com.ageinghippy.recipeapi.diagnostics.Tracer;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.repository.RecipeName;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory trigram index over recipe names, answering the case-insensitive "name contains" searches
+ * without a LIKE '%name%' scan of the recipe table. Every name is split into its three character substrings,
+ * each mapped to the ids of the recipes holding it. A search intersects the lists of the trigrams of the
+ * searched text, then checks the names of the remaining recipes. Prefix searches are substring searches
+ * too and are answered the same way.
+ */
+@Component
+public class RecipeNameIndex extends SearchIndex<RecipeNameIndex.Trigrams, RecipeNameIndex.NameChange> {
+
+    static final int GRAM_LENGTH = 3;
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Value("${recipeapi.search.name-index.enabled:true}")
+    boolean enabled;
+
+    // above this many matches the database is left to filter and page through them
+    @Value("${recipeapi.search.name-index.max-matches:1000}")
+    int maxMatches;
+
+    @Value("${recipeapi.search.name-index.rebuild-batch-size:5000}")
+    int rebuildBatchSize;
+
+    /**
+     * The ids of the recipes whose name contains the fragment, ignoring case, in ascending order.
+     *
+     * @param fragment
+     * @return {@code List<Long>} the matching ids, null if the index cannot answer - it is not built yet,
+     * the fragment is shorter than a trigram or matches more than the configured maximum of recipes
+     */
+    public List<Long> findContaining(String fragment) {
+        String query = normalise(fragment);
+        if (!enabled || query.length() < GRAM_LENGTH) {
+            return null;
+        }
+        try (Span span = Tracer.startSpan("search", "recipeName")) {
+            List<Long> matches = read(trigrams -> trigrams.findContaining(query, maxMatches));
+            span.tag("matches", matches == null ? "fallback" : matches.size());
+            return matches;
+        }
+    }
+
+    /**
+     * Index the current name of the recipe, once the transaction creating or updating it commits.
+     *
+     * @param recipe
+     */
+    public void put(Recipe recipe) {
+        publishAfterCommit(new NameChange(recipe.getId(), recipe.getName()));
+    }
+
+    /**
+     * Drop the recipe from the index, once the transaction deleting it commits.
+     *
+     * @param recipeId
+     */
+    public void remove(Long recipeId) {
+        publishAfterCommit(new NameChange(recipeId, null));
+    }
+
+    @Override
+    protected String topicName() {
+        return "recipeNameIndexUpdates";
+    }
+
+    @Override
+    protected Trigrams load() {
+        Trigrams trigrams = new Trigrams();
+        long afterId = 0;
+        List<RecipeName> batch;
+        do {
+            batch = recipeRepo.findNamesAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+            batch.forEach(recipe -> trigrams.put(recipe.id(), recipe.name()));
+            if (!batch.isEmpty()) {
+                afterId = batch.getLast().id();
+            }
+        } while (batch.size() == rebuildBatchSize);
+        return trigrams;
+    }
+
+    @Override
+    protected void apply(Trigrams trigrams, NameChange change) {
+        trigrams.apply(change);
+    }
+
+    @Override
+    protected int size(Trigrams trigrams) {
+        return trigrams.size();
+    }
+
+    @Override
+    protected boolean isEnabled() {
+        return enabled;
+    }
+
+    // the same folding as Utils.containsIgnoreCase, so the index agrees with the list cache matchers
+    // whatever the default locale
+    static String normalise(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> trigramsOf(String normalised) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalised.length(); i++) {
+            grams.add(normalised.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * A change to the name of a recipe, a null name for a deleted recipe.
+     */
+    record NameChange(Long id, String name) implements Serializable {
+    }
+
+    static final class Trigrams {
+
+        private final Map<String, PostingList> postings = new HashMap<>();
+
+        private final Map<Long, String> names = new HashMap<>();
+
+        void apply(NameChange change) {
+            if (change.name() == null) {
+                remove(change.id());
+            } else {
+                put(change.id(), change.name());
+            }
+        }
+
+        void put(Long id, String name) {
+            String normalised = normalise(name);
+            String previous = names.put(id, normalised);
+            if (normalised.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                removePostings(id, previous);
+            }
+            trigramsOf(normalised).forEach(gram -> postings.computeIfAbsent(gram, g -> new PostingList()).add(id));
+        }
+
+        void remove(Long id) {
+            String previous = names.remove(id);
+            if (previous != null) {
+                removePostings(id, previous);
+            }
+        }
+
+        private void removePostings(Long id, String normalised) {
+            for (String gram : trigramsOf(normalised)) {
+                PostingList ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        List<Long> findContaining(String query, int maxMatches) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String gram : trigramsOf(query)) {
+                PostingList ids = postings.get(gram);
+                if (ids == null) {
+                    return List.of();
+                }
+                lists.add(ids);
+            }
+            // walk the rarest trigram, probing the others
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            PostingList rarest = lists.getFirst();
+
+            List<Long> matches = new ArrayList<>();
+            candidates:
+            for (int i = 0; i < rarest.size(); i++) {
+                long id = rarest.get(i);
+                for (int j = 1; j < lists.size(); j++) {
+                    if (!lists.get(j).contains(id)) {
+                        continue candidates;
+                    }
+                }
+                // sharing every trigram does not make the query a substring - "abcxbcd" holds both trigrams
+                // of "abcd" - the name settles it
+                if (names.get(id).contains(query)) {
+                    if (matches.size() == maxMatches) {
+                        return null;
+                    }
+                    matches.add(id);
+                }
+            }
+            return matches;
+        }
+
+        int size() {
+            return names.size();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ageinghippy.recipeapi.search;
+
+import com.ageinghippy.recipeapi.cache.AfterCommit;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An in-memory index local to each node. It is built from the database on startup (see SearchIndexLoader)
+ * and then kept current by changes applied once the transaction making them commits, and published to the
+ * other nodes of the cluster. Topic messages are not guaranteed to arrive, so the index is also rebuilt
+ * periodically to pick up any change a node missed.
+ *
+ * @param <S> the index itself, only touched under the lock
+ * @param <C> a change to the index, sent to the other nodes as is
+ */
+public abstract class SearchIndex<S, C extends Serializable> {
+
+    // reads share the index, a change or the swap to a rebuilt index holds it alone
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // null until the first build completes
+    private S index;
+
+    // changes committed while a rebuild is reading the database, replayed onto the rebuilt index
+    private List<C> pending;
+
+    private ITopic<C> updates;
+
+    @Autowired(required = false)
+    HazelcastInstance hazelcastInstance;
+
+    protected abstract String topicName();
+
+    /**
+     * @return {@code S} a new index of everything in the database
+     */
+    protected abstract S load();
+
+    protected abstract void apply(S index, C change);
+
+    protected abstract int size(S index);
+
+    protected boolean isEnabled() {
+        return true;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled() && hazelcastInstance != null) {
+            updates = hazelcastInstance.getTopic(topicName());
+            updates.addMessageListener(message -> {
+                // this node applied its own changes when it published them
+                if (!message.getPublishingMember().localMember()) {
+                    apply(message.getMessageObject());
+                }
+            });
+        }
+    }
+
+    /**
+     * Build the index from the database, replacing the current one. One rebuild runs at a time, as they
+     * share the list of pending changes.
+     *
+     * @return {@code int} the number of recipes indexed
+     */
+    public synchronized int rebuild() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S rebuilt;
+        try {
+            rebuilt = load();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(change -> apply(rebuilt, change));
+            pending = null;
+            index = rebuilt;
+            return size(rebuilt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        return read(built -> Boolean.TRUE) != null;
+    }
+
+    public int size() {
+        Integer size = read(this::size);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Run a search against the index.
+     *
+     * @param search
+     * @return {@code R} the result of the search, null until the index is built
+     */
+    protected <R> R read(Function<S, R> search) {
+        lock.readLock().lock();
+        try {
+            return index == null ? null : search.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected void publishAfterCommit(C change) {
+        if (!isEnabled()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            apply(change);
+            if (updates != null) {
+                updates.publish(change);
+            }
+        });
+    }
+
+    private void apply(C change) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                apply(index, change);
+            }
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.ageinghippy.recipeapi.service;
 
+import com.ageinghippy.recipeapi.cache.AfterCommit;
+import com.ageinghippy.recipeapi.configuration.security.TokenDenyList;
+import com.ageinghippy.recipeapi.configuration.security.VerifiedCredentialCache;
 import com.ageinghippy.recipeapi.model.CustomUserDetails;
 import com.ageinghippy.recipeapi.model.Role;
 import com.ageinghippy.recipeapi.repository.UserRepo;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -16,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Collections;
 import java.util.Optional;
 
+@Timed("recipeapi.service")
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
@@ -25,6 +31,12 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     PasswordEncoder encoder;
 
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    @Autowired
+    TokenDenyList tokenDenyList;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
@@ -83,6 +95,45 @@ public class CustomUserDetailsService implements UserDetailsService {
         }
     }
 
+    @Transactional
+    public CustomUserDetails changePassword(String username, String currentPassword, String newPassword)
+            throws EntityNotFoundException, AuthorizationDeniedException {
+        CustomUserDetails user = getExistingUser(username);
+        //the caller may hold no more than a bearer token, so the account owner must prove it with the password
+        if (currentPassword == null || !encoder.matches(currentPassword, user.getPassword())) {
+            throw new AuthorizationDeniedException("The current password is not correct.");
+        }
+        checkPassword(newPassword);
+        user.setPassword(encoder.encode(newPassword));
+        //the old password and tokens issued with it must stop working straight away, not when they expire
+        forgetCredentials(username);
+        return user;
+    }
+
+    @Transactional
+    public CustomUserDetails setEnabled(String username, boolean enabled) throws EntityNotFoundException {
+        CustomUserDetails user = getExistingUser(username);
+        user.setEnabled(enabled);
+        forgetCredentials(username);
+        return user;
+    }
+
+    //once the change commits, otherwise a login racing it verifies against the old state and caches it again
+    private void forgetCredentials(String username) {
+        AfterCommit.run(() -> {
+            verifiedCredentialCache.invalidate(username);
+            tokenDenyList.revokeAllFor(username);
+        });
+    }
+
+    private CustomUserDetails getExistingUser(String username) throws EntityNotFoundException {
+        CustomUserDetails user = userRepo.findByUsername(username);
+        if (user == null) {
+            throw new EntityNotFoundException("User not found.");
+        }
+        return user;
+    }
+
     private void checkPassword(String password) {
         if (password == null) {
             throw new IllegalStateException("You must set a password");
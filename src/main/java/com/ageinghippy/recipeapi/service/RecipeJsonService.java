@@ -0,0 +1,76 @@
+package com.ageinghippy.recipeapi.service;
+
+import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of recipes already encoded as JSON, so a hot recipe is written to the response as stored bytes instead
+ * of running Jackson over the recipe and its ingredients, steps and reviews on every request. Every write that
+ * evicts or replaces a "recipes" entry evicts the matching entry here as well.
+ * Enabled with {@code recipeapi.cache.recipe-json.enabled=true}.
+ */
+@Service
+@ConditionalOnProperty(name = "recipeapi.cache.recipe-json.enabled", havingValue = "true")
+public class RecipeJsonService {
+
+    public static final String CACHE_NAME = "recipeJson";
+
+    @Autowired
+    RecipeService recipeService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${recipeapi.cache.recipe-json.gzip:true}")
+    boolean gzip;
+
+    public boolean isGzipEnabled() {
+        return gzip;
+    }
+
+    @Cacheable(value = CACHE_NAME, key = "#id", sync = true)
+    public EncodedRecipe getEncodedRecipe(Long id) throws NoSuchRecipeException {
+        Recipe recipe = recipeService.getRecipeById(id);
+        try {
+            // the same mapper as the message converters, so the bytes match a serialized response
+            byte[] json = objectMapper.writeValueAsBytes(recipe);
+            return new EncodedRecipe(json, gzip ? gzip(json) : null, recipe.getVersion(), recipe.getUpdatedAt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(bytes)) {
+            gzipStream.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param json      the recipe as JSON
+     * @param gzipJson  the same JSON gzip compressed, null when compression is disabled
+     * @param version   the version of the recipe that was encoded
+     * @param updatedAt its last modification time
+     */
+    public record EncodedRecipe(byte[] json, byte[] gzipJson, Long version, Instant updatedAt) implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = -2412178359473150838L;
+    }
+}
@@ -1,15 +1,30 @@
 package com.ageinghippy.recipeapi.service;
 
+import com.ageinghippy.recipeapi.cache.NotFoundCache;
+import com.ageinghippy.recipeapi.cache.RecipeListCacheIndex;
+import com.ageinghippy.recipeapi.cache.RecipeListQuery;
+import com.ageinghippy.recipeapi.configuration.security.OwnerLookup;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.exception.NoSuchIngredientException;
 import com.ageinghippy.recipeapi.model.CustomUserDetails;
 import com.ageinghippy.recipeapi.model.Ingredient;
 import com.ageinghippy.recipeapi.model.Recipe;
 import com.ageinghippy.recipeapi.model.Step;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.paging.RecipeSort;
+import com.ageinghippy.recipeapi.repository.RecipeFilter;
 import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.ResourceVersion;
+import com.ageinghippy.recipeapi.search.RecipeIngredientIndex;
+import com.ageinghippy.recipeapi.search.RecipeNameIndex;
 import com.ageinghippy.recipeapi.utils.Utils;
-import jakarta.persistence.EntityManager;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -18,9 +33,13 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+// every public method is timed and counted, tagged with its class, method and any exception thrown
+@Timed("recipeapi.service")
 @Service
 public class RecipeService {
 
@@ -28,7 +47,22 @@ public class RecipeService {
     RecipeRepo recipeRepo;
 
     @Autowired
-    EntityManager entityManager;
+    RecipeListCacheIndex recipeListCacheIndex;
+
+    @Autowired
+    NotFoundCache notFoundCache;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    RecipeNameIndex recipeNameIndex;
+
+    @Autowired
+    RecipeIngredientIndex recipeIngredientIndex;
+
+    @Value("${recipeapi.search.ingredient-index.max-matches:1000}")
+    int ingredientSearchMaxMatches;
 
     //implementation to intercept cast and return a mocked user for unit tests.
     public CustomUserDetails castToCustomUserDetails(UserDetails userDetails) {
@@ -36,92 +70,174 @@ public class RecipeService {
     }
 
     @Transactional
-    @Caching(put = @CachePut(value = "recipes", key = "#recipe.id"),
-            evict = @CacheEvict(value = "getRecipes", allEntries = true))
+    @CachePut(value = "recipes", key = "#recipe.id")
     public Recipe createNewRecipe(Recipe recipe) throws IllegalArgumentException {
         if (recipe.getId() != null) {
             throw new IllegalArgumentException("ID cannot be specified for a new recipe");
         }
-        return saveRecipe(recipe);
+        //a new recipe has no reviews, these match the column defaults it is inserted with
+        recipe.setReviews(new ArrayList<>());
+        recipe.setReviewCount(0);
+        recipe.setRatingSum(0);
+        recipe.setReviewRating(null);
+
+        Recipe savedRecipe = saveRecipe(recipe);
+        recipeListCacheIndex.evictAffectedBy(savedRecipe);
+        notFoundCache.evictFoundBy(savedRecipe);
+        recipeNameIndex.put(savedRecipe);
+        recipeIngredientIndex.put(savedRecipe);
+        return savedRecipe;
     }
 
-    @Cacheable(value = "recipes", key = "#id")
+    @Transactional(readOnly = true)
+    //sync, so concurrent misses on a recipe load it once (see SingleFlightCache)
+    @Cacheable(value = "recipes", key = "#id", sync = true)
     public Recipe getRecipeById(Long id) throws NoSuchRecipeException {
+        String notFound = notFoundCache.get(NotFoundCache.recipeKey(id));
+        if (notFound != null) {
+            throw new NoSuchRecipeException(notFound);
+        }
+
         Optional<Recipe> recipeOptional = recipeRepo.findById(id);
 
         if (recipeOptional.isEmpty()) {
-            throw new NoSuchRecipeException("No recipe with ID " + id + " could be found.");
+            String message = "No recipe with ID " + id + " could be found.";
+            notFoundCache.put(NotFoundCache.recipeKey(id), message);
+            throw new NoSuchRecipeException(message);
         }
 
-        Recipe recipe = recipeOptional.get();
-        recipe.generateLocationURI();
-        return recipe;
+        //no location URI here, it is only returned by creates and building it needs the current request,
+        //which a cache warm up or other call outside a request does not have
+        return loadAssociations(recipeOptional.get());
     }
 
-    @Cacheable(value = "getRecipes", key = "'n-' + #name")
-    public List<Recipe> getRecipesByName(String name) throws NoSuchRecipeException {
-        List<Recipe> matchingRecipes = recipeRepo.findByNameContainingIgnoreCase(name);
+    /**
+     * The version of a recipe for conditional requests, read without loading the recipe from the database.
+     * A cached recipe is used when there is one, so the version always matches what a GET would return.
+     *
+     * @param id
+     * @return {@code ResourceVersion} the version of the recipe, null if it does not exist
+     */
+    public ResourceVersion getRecipeVersion(Long id) {
+        Cache cache = cacheManager.getCache("recipes");
+        Recipe cached = cache == null ? null : cache.get(id, Recipe.class);
+        if (cached != null) {
+            return new ResourceVersion(cached.getVersion(), cached.getUpdatedAt());
+        }
+        return recipeRepo.findVersionById(id).orElse(null);
+    }
 
-        if (matchingRecipes.isEmpty()) {
-            throw new NoSuchRecipeException("No recipes could be found with that name.");
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'n-' + #page.cacheKey() + '|' + #name")
+    public KeysetPage<Recipe> getRecipesByName(String name, KeysetRequest page) throws NoSuchRecipeException {
+        String notFound = page.isFirstPage() ? notFoundCache.getNameSearch(name) : null;
+        if (notFound != null) {
+            throw new NoSuchRecipeException(notFound);
         }
 
-        return matchingRecipes;
+        KeysetPage<Recipe> matchingRecipes = recipeRepo.findPage(matchingName(RecipeFilter.byName(name)), page);
+
+        if (page.isFirstPage() && matchingRecipes.content().isEmpty()) {
+            String message = "No recipes could be found with that name.";
+            notFoundCache.putNameSearch(name, message);
+            throw new NoSuchRecipeException(message);
+        }
+
+        return recipeListCacheIndex.track("n-" + page.cacheKey() + "|" + name,
+                new RecipeListQuery.ByName(name), page,
+                loadAssociations(matchingRecipes));
     }
 
-    @Cacheable(value = "getRecipes", key = "'a-' + #author")
-    public List<Recipe> getRecipesByUsername(String author) throws NoSuchRecipeException {
-        List<Recipe> matchingRecipes = recipeRepo.findByUser_username(author);
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'a-' + #page.cacheKey() + '|' + #author")
+    public KeysetPage<Recipe> getRecipesByUsername(String author, KeysetRequest page) throws NoSuchRecipeException {
+        String notFound = page.isFirstPage() ? notFoundCache.get(NotFoundCache.recipeAuthorKey(author)) : null;
+        if (notFound != null) {
+            throw new NoSuchRecipeException(notFound);
+        }
+
+        KeysetPage<Recipe> matchingRecipes = recipeRepo.findPage(RecipeFilter.byAuthor(author), page);
 
-        if (matchingRecipes.isEmpty()) {
-            throw new NoSuchRecipeException("No recipes could be found by that author.");
+        if (page.isFirstPage() && matchingRecipes.content().isEmpty()) {
+            String message = "No recipes could be found by that author.";
+            notFoundCache.put(NotFoundCache.recipeAuthorKey(author), message);
+            throw new NoSuchRecipeException(message);
         }
 
-        return matchingRecipes;
+        return recipeListCacheIndex.track("a-" + page.cacheKey() + "|" + author,
+                new RecipeListQuery.ByAuthor(author), page,
+                loadAssociations(matchingRecipes));
     }
 
-    @Cacheable(value = "getRecipes")
-    public List<Recipe> getRecipesByNameAndMaximumDifficulty(String name, int maximumDifficultyRating) throws NoSuchRecipeException {
-        List<Recipe> matchingRecipes = recipeRepo.findByNameContainingIgnoreCaseAndDifficultyRatingLessThanEqual(name, maximumDifficultyRating);
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'nd-' + #page.cacheKey() + '|' + #maximumDifficultyRating + '|' + #name")
+    public KeysetPage<Recipe> getRecipesByNameAndMaximumDifficulty(String name, int maximumDifficultyRating, KeysetRequest page) throws NoSuchRecipeException {
+        KeysetPage<Recipe> matchingRecipes = recipeRepo.findPage(
+                matchingName(RecipeFilter.byNameAndMaximumDifficulty(name, maximumDifficultyRating)), page);
 
-        if (matchingRecipes.isEmpty()) {
+        if (page.isFirstPage() && matchingRecipes.content().isEmpty()) {
             throw new NoSuchRecipeException("No recipes could be found with that name and given maximum difficulty rating.");
         }
 
-        return matchingRecipes;
+        return recipeListCacheIndex.track("nd-" + page.cacheKey() + "|" + maximumDifficultyRating + "|" + name,
+                new RecipeListQuery.ByNameAndMaximumDifficulty(name, maximumDifficultyRating), page,
+                loadAssociations(matchingRecipes));
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'i-' + #page.cacheKey() + '|' + #include + '|' + #exclude")
+    public KeysetPage<Recipe> getRecipesByIngredients(List<String> include, List<String> exclude, KeysetRequest page) throws NoSuchRecipeException {
+        List<Long> ids = recipeIngredientIndex.findRecipes(include, exclude);
+
+        KeysetPage<Recipe> matchingRecipes = recipeRepo.findPage(RecipeFilter.byIds(candidatesForPage(ids, page)), page);
+
+        if (page.isFirstPage() && matchingRecipes.content().isEmpty()) {
+            throw new NoSuchRecipeException("No recipes could be found with those ingredients.");
+        }
+
+        return recipeListCacheIndex.track("i-" + page.cacheKey() + "|" + include + "|" + exclude,
+                new RecipeListQuery.ByIngredients(include, exclude), page,
+                loadAssociations(matchingRecipes));
     }
 
-    public List<Recipe> getAllDodgeCache() throws NoSuchRecipeException {
-        return getAllRecipes();
+    public KeysetPage<Recipe> getAllDodgeCache(KeysetRequest page) throws NoSuchRecipeException {
+        return getAllRecipes(page);
     }
 
-    @Cacheable(value = "getRecipes")
-    public List<Recipe> getAllRecipes() throws NoSuchRecipeException {
-        List<Recipe> recipes = recipeRepo.findAll();
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'all-' + #page.cacheKey()")
+    public KeysetPage<Recipe> getAllRecipes(KeysetRequest page) throws NoSuchRecipeException {
+        KeysetPage<Recipe> recipes = recipeRepo.findPage(RecipeFilter.none(), page);
 
-        if (recipes.isEmpty()) {
+        if (page.isFirstPage() && recipes.content().isEmpty()) {
             throw new NoSuchRecipeException("There are no recipes yet :( feel free to add one though");
         }
 
-        return recipes;
+        return recipeListCacheIndex.track("all-" + page.cacheKey(), new RecipeListQuery.All(), page, loadAssociations(recipes));
     }
 
-    @Cacheable(value = "getRecipes")
-    public List<Recipe> getAllRecipesByMinimumReviewRating(int minimumReviewRating) {
+    @Transactional(readOnly = true)
+    @Cacheable(value = "getRecipes", key = "'r-' + #page.cacheKey() + '|' + #minimumReviewRating")
+    public KeysetPage<Recipe> getAllRecipesByMinimumReviewRating(int minimumReviewRating, KeysetRequest page) {
         if (minimumReviewRating < 0 || minimumReviewRating > 10) {
             throw new IllegalArgumentException("Minimum rating must be within the range of 0-10");
         }
-        return recipeRepo.findAllWithMinimumReviewRating(minimumReviewRating);
+        return recipeListCacheIndex.track("r-" + page.cacheKey() + "|" + minimumReviewRating,
+                new RecipeListQuery.ByMinimumReviewRating(minimumReviewRating), page,
+                loadAssociations(recipeRepo.findPage(RecipeFilter.byMinimumReviewRating(minimumReviewRating), page)));
     }
 
     @Transactional
     @Caching(evict = {
-            @CacheEvict(value = "recipes", key = "#id"),
-            @CacheEvict(value = "getRecipes", allEntries = true)})
+            @CacheEvict(value = {"recipes", RecipeJsonService.CACHE_NAME}, key = "#id"),
+            @CacheEvict(value = OwnerLookup.CACHE_NAME, key = "'recipe-' + #id")})
     public Recipe deleteRecipeById(Long id) throws NoSuchRecipeException {
         try {
             Recipe recipe = getRecipeById(id);
             recipeRepo.deleteById(id);
+            recipeListCacheIndex.evictContaining(id);
+            recipeNameIndex.remove(id);
+            recipeIngredientIndex.remove(id);
             return recipe;
         } catch (NoSuchRecipeException e) {
             throw new NoSuchRecipeException(e.getMessage() + " Could not delete.");
@@ -129,11 +245,26 @@ public class RecipeService {
     }
 
     @Transactional
-    @Caching(put = @CachePut(value = "recipes", key = "#recipe.id"),
-            evict = @CacheEvict(value = "getRecipes", allEntries = true))
+    @CachePut(value = "recipes", key = "#recipe.id")
+    @CacheEvict(value = RecipeJsonService.CACHE_NAME, key = "#recipe.id")
     public Recipe patchRecipe(Recipe recipe) throws NoSuchRecipeException, NoSuchIngredientException {
         Recipe patchRecipe = getRecipeById(recipe.getId());
+        mergePatch(patchRecipe, recipe);
+
+        //cannot patch reviews - only recipe stuff
+
+        //return
+        return updateRecipe(patchRecipe, false);
+    }
 
+    /**
+     * Copy the non null fields of a patch onto the recipe, adding new ingredients and steps and patching
+     * existing ones by id. Kept apart from patchRecipe so the merge can be benchmarked on its own
+     *
+     * @param patchRecipe the recipe to update
+     * @param recipe      the patch
+     */
+    void mergePatch(Recipe patchRecipe, Recipe recipe) {
         //update non null elements from recipe
         patchRecipe.setName(Utils.nvl(recipe.getName(), patchRecipe.getName()));
         patchRecipe.setMinutesToMake(Utils.nvl(recipe.getMinutesToMake(), patchRecipe.getMinutesToMake()));
@@ -181,22 +312,22 @@ public class RecipeService {
                     }
                 }
         );
-
-        //cannot patch reviews - only recipe stuff
-
-        //return
-        return updateRecipe(patchRecipe, false);
     }
 
     @Transactional
-    @Caching(put = @CachePut(value = "recipes", key = "#recipe.id"),
-            evict = @CacheEvict(value = "getRecipes", allEntries = true))
+    @CachePut(value = "recipes", key = "#recipe.id")
+    @CacheEvict(value = RecipeJsonService.CACHE_NAME, key = "#recipe.id")
     public Recipe updateRecipe(Recipe recipe, boolean forceIdCheck) throws NoSuchRecipeException {
         try {
             if (forceIdCheck) { //using forceCheck as a PATCH indicator
                 getRecipeById(recipe.getId());
             }
-            return saveRecipe(recipe);
+            Recipe savedRecipe = saveRecipe(recipe);
+            recipeListCacheIndex.evictAffectedBy(savedRecipe);
+            notFoundCache.evictFoundBy(savedRecipe);
+            recipeNameIndex.put(savedRecipe);
+            recipeIngredientIndex.put(savedRecipe);
+            return savedRecipe;
         } catch (NoSuchRecipeException e) {
             throw new NoSuchRecipeException(
                     "The recipe you passed in did not have an ID found " +
@@ -205,15 +336,66 @@ public class RecipeService {
         }
     }
 
-    private Recipe saveRecipe(Recipe recipe) {
-        recipeRepo.saveAndFlush(recipe);
+    //the name index narrows the search to the recipes it matches where it can, the database still checks the name
+    private RecipeFilter matchingName(RecipeFilter filter) {
+        List<Long> ids = recipeNameIndex.findContaining(filter.name());
+        return ids == null ? filter : filter.withNameMatches(ids);
+    }
 
-        //force a refresh from the database to ensure all reviews are loaded and average rating calculated
-        entityManager.refresh(recipe);
+    //the index returns every match in id order, so a page sorted by id is cut from them here; any other
+    //order leaves the database to sort the whole set, which is only sent while it is small
+    private List<Long> candidatesForPage(List<Long> ids, KeysetRequest page) {
+        if (page.sort() != RecipeSort.ID) {
+            if (ids.size() > ingredientSearchMaxMatches) {
+                throw new IllegalArgumentException("More than " + ingredientSearchMaxMatches +
+                        " recipes use these ingredients. Narrow the search, or sort by id.");
+            }
+            return ids;
+        }
+        int from = 0;
+        int to = ids.size();
+        if (page.position() != null) {
+            int position = Collections.binarySearch(ids, page.position().id());
+            if (page.descending()) {
+                to = position >= 0 ? position : -(position + 1);
+            } else {
+                from = position >= 0 ? position + 1 : -(position + 1);
+            }
+        }
+        //one more than the page, to find out whether there is a next one
+        return page.descending()
+                ? List.copyOf(ids.subList(Math.max(from, to - page.limit() - 1), to))
+                : List.copyOf(ids.subList(from, Math.min(to, from + page.limit() + 1)));
+    }
 
-        Recipe savedRecipe = recipeRepo.findById(recipe.getId()).get();
+    private Recipe saveRecipe(Recipe recipe) {
+        //flush so generated ids are assigned, the response is then built from the saved state in memory
+        //rather than refreshed and reloaded from the database
+        Recipe savedRecipe = loadAssociations(recipeRepo.saveAndFlush(recipe));
+        //bump the version whether or not the recipe row itself changed - patches to ingredients and steps
+        //only update their own rows
+        recipeRepo.touch(savedRecipe.getId());
+        recipeRepo.findVersionById(savedRecipe.getId()).ifPresent(version -> {
+            savedRecipe.setVersion(version.version());
+            savedRecipe.setUpdatedAt(version.updatedAt());
+        });
         savedRecipe.generateLocationURI();
 
         return savedRecipe;
     }
+
+    //cached recipes are serialized into hazelcast and read back without a session,
+    //so everything a response renders has to be loaded before the recipe is cached
+    private static Recipe loadAssociations(Recipe recipe) {
+        Hibernate.initialize(recipe.getIngredients());
+        Hibernate.initialize(recipe.getSteps());
+        Hibernate.initialize(recipe.getReviews());
+        return recipe;
+    }
+
+    private static KeysetPage<Recipe> loadAssociations(KeysetPage<Recipe> recipes) {
+        //the collections are batch fetched, so this costs a few statements for the whole page
+        recipes.content().forEach(RecipeService::loadAssociations);
+        return recipes;
+    }
 }
@@ -1,20 +1,31 @@
 package com.ageinghippy.recipeapi.service;
 
+import com.ageinghippy.recipeapi.cache.NotFoundCache;
+import com.ageinghippy.recipeapi.cache.RecipeListCacheIndex;
+import com.ageinghippy.recipeapi.configuration.security.OwnerLookup;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.exception.NoSuchReviewException;
-import com.ageinghippy.recipeapi.model.Recipe;
 import com.ageinghippy.recipeapi.model.Review;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.ResourceVersion;
 import com.ageinghippy.recipeapi.repository.ReviewRepo;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
+@Timed("recipeapi.service")
 @Service
 public class ReviewService {
 
@@ -22,77 +33,129 @@ public class ReviewService {
     ReviewRepo reviewRepo;
 
     @Autowired
-    RecipeService recipeService;
+    RecipeRepo recipeRepo;
+
+    @Autowired
+    RecipeListCacheIndex recipeListCacheIndex;
+
+    @Autowired
+    NotFoundCache notFoundCache;
+
+    @Autowired
+    CacheManager cacheManager;
 
     @Cacheable(value = "reviews", key = "#id")
     public Review getReviewById(Long id) throws NoSuchReviewException {
+        String notFound = notFoundCache.get(NotFoundCache.reviewKey(id));
+        if (notFound != null) {
+            throw new NoSuchReviewException(notFound);
+        }
+
         Optional<Review> review = reviewRepo.findById(id);
 
         if (review.isEmpty()) {
-            throw new NoSuchReviewException("The review with ID " + id + " could not be found.");
+            String message = "The review with ID " + id + " could not be found.";
+            notFoundCache.put(NotFoundCache.reviewKey(id), message);
+            throw new NoSuchReviewException(message);
         }
         return review.get();
     }
 
-    @Cacheable(value = "getReviews", key = "'r-' + #recipeId")
-    public List<Review> getReviewByRecipeId(Long recipeId) throws NoSuchRecipeException, NoSuchReviewException {
-        Recipe recipe = recipeService.getRecipeById(recipeId);
+    /**
+     * The version of a review for conditional requests, see RecipeService.getRecipeVersion
+     *
+     * @param id
+     * @return {@code ResourceVersion} the version of the review, null if it does not exist
+     */
+    public ResourceVersion getReviewVersion(Long id) {
+        Cache cache = cacheManager.getCache("reviews");
+        Review cached = cache == null ? null : cache.get(id, Review.class);
+        if (cached != null) {
+            return new ResourceVersion(cached.getVersion(), cached.getUpdatedAt());
+        }
+        return reviewRepo.findVersionById(id).orElse(null);
+    }
 
-        List<Review> reviews = recipe.getReviews();
+    // only the default first page is cached, so review writes can keep evicting a single key per listing
+    @Cacheable(value = "getReviews", key = "'r-' + #recipeId", condition = "#page.isDefaultFirstPage()")
+    public KeysetPage<Review> getReviewByRecipeId(Long recipeId, KeysetRequest page) throws NoSuchRecipeException, NoSuchReviewException {
+        KeysetPage<Review> reviews = page.toPage(
+                reviewRepo.findPageByRecipeId(recipeId, afterId(page), PageRequest.of(0, page.limit() + 1)),
+                Review::getId, review -> null);
 
-        if (reviews.isEmpty()) {
+        if (page.isFirstPage() && reviews.content().isEmpty()) {
+            if (!recipeRepo.existsById(recipeId)) {
+                throw new NoSuchRecipeException("No recipe with ID " + recipeId + " could be found.");
+            }
             throw new NoSuchReviewException("There are no reviews for this recipe.");
         }
         return reviews;
     }
 
-    @Cacheable(value = "getReviews", key = "'a-' + #username")
-    public List<Review> getReviewByUsername(String username) throws NoSuchReviewException {
-        List<Review> reviews = reviewRepo.findByUser_username(username);
+    @Cacheable(value = "getReviews", key = "'a-' + #username", condition = "#page.isDefaultFirstPage()")
+    public KeysetPage<Review> getReviewByUsername(String username, KeysetRequest page) throws NoSuchReviewException {
+        KeysetPage<Review> reviews = page.toPage(
+                reviewRepo.findPageByUsername(username, afterId(page), PageRequest.of(0, page.limit() + 1)),
+                Review::getId, review -> null);
 
-        if (reviews.isEmpty()) {
+        if (page.isFirstPage() && reviews.content().isEmpty()) {
             throw new NoSuchReviewException("No reviews could be found for username " + username);
         }
         return reviews;
     }
 
+    @Transactional
     @Caching(evict = {
             @CacheEvict(value = "getReviews", key = "'r-' + #recipeId"),
             @CacheEvict(value = "getReviews", key = "'a-' + #review.user.username"),
-            @CacheEvict(value = "getRecipes", allEntries = true)},
-            put = @CachePut(value = "recipe", key = "#recipeId"))
-    public Recipe postNewReview(Review review, Long recipeId) throws NoSuchRecipeException {
-        Recipe recipe = recipeService.getRecipeById(recipeId);
-        if (recipe.getAuthor().equals(review.getAuthor())) {
+            @CacheEvict(value = {"recipes", RecipeJsonService.CACHE_NAME}, key = "#recipeId")})
+    public Review postNewReview(Review review, Long recipeId) throws NoSuchRecipeException {
+        String recipeAuthor = recipeRepo.findAuthorUsernameById(recipeId).orElseThrow(
+                () -> new NoSuchRecipeException("No recipe with ID " + recipeId + " could be found."));
+        if (recipeAuthor.equals(review.getAuthor())) {
             throw new IllegalArgumentException("Oy! You cannot post reviews for your own recipes!!");
         }
-        recipe.getReviews().add(review);
 
-        return recipeService.updateRecipe(recipe, false);
+        //insert against a reference to the recipe - neither the recipe nor its other reviews are loaded
+        review.setId(null);
+        review.setRecipe(recipeRepo.getReferenceById(recipeId));
+        Review savedReview = reviewRepo.saveAndFlush(review);
+        touch(savedReview);
+        recipeRepo.applyReviewDelta(recipeId, 1, review.getRating());
+        recipeListCacheIndex.evictRatingQueriesAndContaining(recipeId);
+        notFoundCache.evictReview(savedReview.getId());
+
+        return savedReview;
     }
 
+    @Transactional
     @Caching(evict = {
+            @CacheEvict(value = "reviews", key = "#id"),
+            @CacheEvict(value = OwnerLookup.CACHE_NAME, key = "'review-' + #id"),
             @CacheEvict(value = "getReviews", allEntries = true), //We don't have enough info to be selective
-            @CacheEvict(value = "getRecipes", allEntries = true), //we don't know which recipe is affected
-            @CacheEvict(value = "recipes", allEntries = true)})   //we don't know which recipe is affected
+            @CacheEvict(value = {"recipes", RecipeJsonService.CACHE_NAME}, key = "#result.recipe.id")})
     public Review deleteReviewById(Long id) throws NoSuchReviewException {
-        Review review = getReviewById(id);
-
-        if (null == review) {
-            throw new NoSuchReviewException("The review you are trying to delete does not exist.");
-        }
+        Review review = reviewRepo.findByIdForUpdate(id).orElseThrow(
+                () -> new NoSuchReviewException("The review you are trying to delete does not exist."));
+        Long recipeId = review.getRecipe().getId();
         reviewRepo.deleteById(id);
+        recipeRepo.applyReviewDelta(recipeId, -1, -review.getRating());
+        recipeListCacheIndex.evictRatingQueriesAndContaining(recipeId);
         return review;
     }
 
+    @Transactional
     @Caching(evict = {
             @CacheEvict(value = "getReviews", allEntries = true),
-            @CacheEvict(value = "getRecipes", allEntries = true),
-            @CacheEvict(value = "recipes", allEntries = true)},
-            put = @CachePut(value = "review", key = "#reviewToUpdate.Id"))
+            @CacheEvict(value = {"recipes", RecipeJsonService.CACHE_NAME}, key = "#result.recipe.id")},
+            put = @CachePut(value = "reviews", key = "#reviewToUpdate.id"))
     public Review updateReviewById(Review reviewToUpdate) throws NoSuchReviewException {
         try {
-            Review review = getReviewById(reviewToUpdate.getId());
+            // locked, so a concurrent update of the review cannot compute its delta from the same old rating
+            Long id = reviewToUpdate.getId();
+            Review review = reviewRepo.findByIdForUpdate(id).orElseThrow(
+                    () -> new NoSuchReviewException("The review with ID " + id + " could not be found."));
+            int previousRating = review.getRating();
             if (reviewToUpdate.getDescription() != null && !reviewToUpdate.getDescription().isEmpty()) {
                 review.setDescription(reviewToUpdate.getDescription());
             }
@@ -100,7 +163,12 @@ public class ReviewService {
                 review.setRating(reviewToUpdate.getRating());
             }
 
-            reviewToUpdate = reviewRepo.save(review);
+            reviewToUpdate = reviewRepo.saveAndFlush(review);
+            touch(reviewToUpdate);
+            Long recipeId = review.getRecipe().getId();
+            recipeRepo.applyReviewDelta(recipeId, 0, review.getRating() - previousRating);
+            recipeListCacheIndex.evictRatingQueriesAndContaining(recipeId);
+            notFoundCache.evictReview(reviewToUpdate.getId());
 
             return reviewToUpdate;
         } catch (NoSuchReviewException e) {
@@ -111,4 +179,15 @@ public class ReviewService {
         }
     }
 
+    private void touch(Review review) {
+        reviewRepo.touch(review.getId());
+        reviewRepo.findVersionById(review.getId()).ifPresent(version -> {
+            review.setVersion(version.version());
+            review.setUpdatedAt(version.updatedAt());
+        });
+    }
+
+    private long afterId(KeysetRequest page) {
+        return page.isFirstPage() ? 0 : page.position().id();
+    }
 }
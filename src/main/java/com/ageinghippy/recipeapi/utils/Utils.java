@@ -1,5 +1,7 @@
 package com.ageinghippy.recipeapi.utils;
 
+import java.util.Locale;
+
 public class Utils {
 
     /**
@@ -12,4 +14,17 @@ public class Utils {
     public static <T> T nvl(T preferred, T alternative) {
         return preferred != null ? preferred : alternative;
     }
+
+    /**
+     * Case-insensitive equivalent of {@link String#contains(CharSequence)}, matching the semantics of
+     * the repository's ContainingIgnoreCase queries. Folds with Locale.ROOT, as the search indexes and
+     * NotFoundCache do, so a default locale such as tr cannot make them disagree
+     *
+     * @param value
+     * @param fragment
+     * @return {@code boolean} true if value is not null and contains fragment ignoring case
+     */
+    public static boolean containsIgnoreCase(String value, String fragment) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(fragment.toLowerCase(Locale.ROOT));
+    }
 }
@@ -0,0 +1,122 @@
+package com.ageinghippy.recipeapi;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Finds the highest number of concurrent clients each threading mode sustains: the app is started on platform
+ * threads, then on virtual threads, and loaded with ever more clients reading uncached recipe pages (so every
+ * request blocks on JDBC) until the p99 latency or the error rate is over its limit.
+ * Needs the same database as RecipeapiApplicationTests. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+
+    private static final int[] CONCURRENCY_LEVELS = {50, 100, 200, 400, 800, 1600, 3200};
+    private static final long LEVEL_DURATION_MILLIS = 10_000;
+    private static final long MAX_P99_MILLIS = 1_000;
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    @Test
+    public void compareMaxSustainableConcurrency() throws Exception {
+        int platform = maxSustainableConcurrency(false);
+        int virtual = maxSustainableConcurrency(true);
+
+        System.out.println("max sustainable concurrency on platform threads: " + platform);
+        System.out.println("max sustainable concurrency on virtual threads:  " + virtual);
+        assertThat(virtual).isGreaterThanOrEqualTo(platform);
+    }
+
+    private int maxSustainableConcurrency(boolean virtualThreads) throws Exception {
+        String[] profiles = virtualThreads ? new String[]{"test", "virtual-threads"} : new String[]{"test"};
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RecipeapiApplication.class)
+                .profiles(profiles)
+                .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=INFO",
+                        "logging.level.org.springframework.web=INFO")
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/recipe/all?limit=20");
+
+            int sustained = 0;
+            for (int clients : CONCURRENCY_LEVELS) {
+                Level level = runLevel(uri, clients);
+                System.out.println((virtualThreads ? "virtual " : "platform") + " threads, " + level);
+                if (level.p99Millis() > MAX_P99_MILLIS || level.errorRate() > MAX_ERROR_RATE) {
+                    break;
+                }
+                sustained = clients;
+            }
+            return sustained;
+        }
+    }
+
+    private Level runLevel(URI uri, int clients) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(10)).GET().build();
+        long deadline = System.currentTimeMillis() + LEVEL_DURATION_MILLIS;
+
+        // one virtual thread per client, so the load generator itself is not the bottleneck
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ClientResult>> results = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                results.add(executor.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    int errors = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors++;
+                            }
+                        } catch (Exception e) {
+                            errors++;
+                        }
+                        latencies.add(System.nanoTime() - start);
+                    }
+                    return new ClientResult(latencies, errors);
+                }));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            int errors = 0;
+            for (Future<ClientResult> result : results) {
+                latencies.addAll(result.get().latencies());
+                errors += result.get().errors();
+            }
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            long p99 = sorted.length == 0 ? Long.MAX_VALUE : sorted[(int) Math.min(sorted.length - 1, sorted.length * 0.99)];
+            return new Level(clients, sorted.length * 1000.0 / LEVEL_DURATION_MILLIS, p99 / 1_000_000,
+                    sorted.length == 0 ? 1 : (double) errors / sorted.length);
+        }
+    }
+
+    private record ClientResult(List<Long> latencies, int errors) {
+    }
+
+    private record Level(int clients, double requestsPerSecond, long p99Millis, double errorRate) {
+        @Override
+        public String toString() {
+            return String.format("%d clients: %,.0f requests/s, p99 %dms, %.2f%% errors",
+                    clients, requestsPerSecond, p99Millis, errorRate * 100);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.*;
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.config.CompactSerializationConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the compact cache representation of a recipe with the java serialization it replaced:
+ * bytes per cache entry and serialize/deserialize time. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CacheSerializationBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+
+    private HazelcastInstance compactInstance;
+    private HazelcastInstance javaSerializationInstance;
+    private Recipe recipe;
+
+    @BeforeAll
+    public void setup() {
+        compactInstance = Hazelcast.newHazelcastInstance(standaloneConfig());
+
+        Config javaSerializationConfig = standaloneConfig();
+        javaSerializationConfig.getSerializationConfig().setCompactSerializationConfig(new CompactSerializationConfig());
+        javaSerializationInstance = Hazelcast.newHazelcastInstance(javaSerializationConfig);
+
+        recipe = sampleRecipe();
+    }
+
+    @AfterAll
+    public void tearDown() {
+        compactInstance.shutdown();
+        javaSerializationInstance.shutdown();
+    }
+
+    @Test
+    public void compareRecipeEntry() {
+        Result java = measure("java serialization", javaSerializationInstance);
+        Result compact = measure("compact", compactInstance);
+
+        System.out.println(java);
+        System.out.println(compact);
+        assertThat(compact.bytes()).isLessThan(java.bytes());
+    }
+
+    private Result measure(String format, HazelcastInstance instance) {
+        SerializationService serializationService =
+                ((SerializationServiceSupport) instance).getSerializationService();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            serializationService.toObject(serializationService.toData(recipe));
+        }
+
+        Data data = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            data = serializationService.toData(recipe);
+        }
+        long serializeNanos = System.nanoTime() - start;
+
+        Recipe read = null;
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            read = serializationService.toObject(data);
+        }
+        long deserializeNanos = System.nanoTime() - start;
+
+        assertThat(read.getAuthor()).isEqualTo(recipe.getAuthor());
+        assertThat(read.getReviews()).hasSameSizeAs(recipe.getReviews());
+        return new Result(format, data.totalSize(),
+                serializeNanos / MEASURED_ITERATIONS, deserializeNanos / MEASURED_ITERATIONS);
+    }
+
+    private static Config standaloneConfig() {
+        Config config = new ClasspathYamlConfig("hazelcast.yaml");
+        config.setClusterName("serialization-benchmark-" + UUID.randomUUID());
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        return config;
+    }
+
+    //the size of a typical recipe - a handful of ingredients and steps and a page of reviews
+    private static Recipe sampleRecipe() {
+        Recipe recipe = Recipe.builder()
+                .id(1L)
+                .name("test recipe")
+                .minutesToMake(30)
+                .difficultyRating(5)
+                .user(user("bill"))
+                .reviewRating(7)
+                .reviewCount(10)
+                .ratingSum(70)
+                .ingredients(new ArrayList<>(IntStream.rangeClosed(1, 6)
+                        .mapToObj(i -> Ingredient.builder().id((long) i).name("ingredient " + i).amount(i + " cups").state("chopped").build())
+                        .toList()))
+                .steps(new ArrayList<>(IntStream.rangeClosed(1, 8)
+                        .mapToObj(i -> Step.builder().id((long) i).stepNumber(i).description("do step " + i + " until it is done").build())
+                        .toList()))
+                .build();
+
+        List<Review> reviews = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> Review.builder().id((long) i).user(user("reviewer" + i)).recipe(recipe).rating(7)
+                        .description("This was a pretty good recipe, I would make it again").build())
+                .toList();
+        recipe.setReviews(new ArrayList<>(reviews));
+        return recipe;
+    }
+
+    private static CustomUserDetails user(String username) {
+        return CustomUserDetails.builder()
+                .id((long) username.hashCode())
+                .username(username)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6ytnvb5Wr/ZwVuZLo1bnC9u")
+                .authorities(List.of(Role.builder().id(1L).role(Role.Roles.ROLE_USER).build()))
+                .userMeta(UserMeta.builder().id(1L).name(username).email(username + "@email.com").build())
+                .build();
+    }
+
+    private record Result(String format, int bytes, long serializeNanos, long deserializeNanos) {
+        @Override
+        public String toString() {
+            return String.format("%-20s %6d bytes/entry %8d ns serialize %8d ns deserialize",
+                    format, bytes, serializeNanos, deserializeNanos);
+        }
+    }
+}
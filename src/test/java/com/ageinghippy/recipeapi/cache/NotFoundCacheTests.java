@@ -0,0 +1,76 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.Recipe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NotFoundCache over a local cache. Outside of a transaction its evictions run straight away.
+ */
+class NotFoundCacheTests {
+
+    private NotFoundCache notFoundCache;
+
+    @BeforeEach
+    public void setup() {
+        notFoundCache = new NotFoundCache();
+        notFoundCache.cacheManager = new ConcurrentMapCacheManager(NotFoundCache.CACHE_NAME);
+    }
+
+    @Test
+    public void testWriteEvictsLookupsByIdAndAuthor() {
+        notFoundCache.put(NotFoundCache.recipeKey(7L), "no recipe 7");
+        notFoundCache.put(NotFoundCache.recipeAuthorKey("anne"), "no recipes by anne");
+        notFoundCache.put(NotFoundCache.recipeAuthorKey("bill"), "no recipes by bill");
+
+        notFoundCache.evictFoundBy(recipe(7L, "Baked Pasta", "anne"));
+
+        assertThat(notFoundCache.get(NotFoundCache.recipeKey(7L))).isNull();
+        assertThat(notFoundCache.get(NotFoundCache.recipeAuthorKey("anne"))).isNull();
+        // lookups the recipe does not satisfy stay cached
+        assertThat(notFoundCache.get(NotFoundCache.recipeAuthorKey("bill"))).isEqualTo("no recipes by bill");
+    }
+
+    @Test
+    public void testWriteEndsCachedNameSearches() {
+        notFoundCache.putNameSearch("pasta", "no pasta");
+        assertThat(notFoundCache.getNameSearch("pasta")).isEqualTo("no pasta");
+        assertThat(notFoundCache.getNameSearch("PASTA")).isEqualTo("no pasta");
+
+        // the new recipe holds the searched name anywhere in its own
+        notFoundCache.evictFoundBy(recipe(8L, "Baked Pasta Bake", "anne"));
+        assertThat(notFoundCache.getNameSearch("pasta")).isNull();
+
+        // searches cached after the write are answered again
+        notFoundCache.putNameSearch("risotto", "no risotto");
+        assertThat(notFoundCache.getNameSearch("risotto")).isEqualTo("no risotto");
+    }
+
+    @Test
+    public void testNameKeysIgnoreTheDefaultLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            // the dotted capital I lower-cases differently in Turkish
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            String turkish = NotFoundCache.recipeNameKey("PIE");
+            Locale.setDefault(Locale.ROOT);
+            assertThat(NotFoundCache.recipeNameKey("PIE")).isEqualTo(turkish).endsWith("pie");
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static Recipe recipe(Long id, String name, String author) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .user(CustomUserDetails.builder().username(author).build())
+                .build();
+    }
+}
@@ -0,0 +1,234 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import org.junit.jupiter.api.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RecipeListCacheIndex over the hazelcast map it runs on, with two members in one cluster so writes on one
+ * node are checked against the pages cached by the other.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RecipeListCacheIndexTests {
+
+    private HazelcastInstance memberA;
+    private HazelcastInstance memberB;
+
+    private RecipeListCacheIndex indexA;
+    private RecipeListCacheIndex indexB;
+
+    private Cache cacheA;
+
+    private static final KeysetRequest BY_ID = KeysetRequest.of(null, null, null, null);
+
+    @BeforeAll
+    public void setup() {
+        String clusterName = "list-cache-index-test-" + UUID.randomUUID();
+        memberA = Hazelcast.newHazelcastInstance(clusterConfig(clusterName));
+        memberB = Hazelcast.newHazelcastInstance(clusterConfig(clusterName));
+
+        indexA = index(memberA);
+        indexB = index(memberB);
+        cacheA = indexA.cacheManager.getCache(RecipeListCacheIndex.CACHE_NAME);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        memberB.shutdown();
+        memberA.shutdown();
+    }
+
+    @BeforeEach
+    public void clear() {
+        memberA.getMap(RecipeListCacheIndex.CACHE_NAME).clear();
+        memberA.getMap(RecipeListCacheIndex.INDEX_NAME).clear();
+    }
+
+    @Test
+    public void testWriteEvictsOnlyAffectedPages() {
+        cachePage("n-pasta", new RecipeListQuery.ByName("pasta"), recipe(1L, "pasta", "bill"));
+        cachePage("a-bill", new RecipeListQuery.ByAuthor("bill"), recipe(1L, "pasta", "bill"), recipe(2L, "soup", "bill"));
+        cachePage("a-anne", new RecipeListQuery.ByAuthor("anne"), recipe(3L, "cake", "anne"));
+        cachePage("r-5", new RecipeListQuery.ByMinimumReviewRating(5), recipe(3L, "cake", "anne"));
+        cachePage("all", new RecipeListQuery.All(), recipe(1L, "pasta", "bill"));
+
+        // a new pasta recipe by anne, written on the other node
+        indexB.evictAffectedBy(recipe(4L, "Baked Pasta", "anne"));
+
+        // confirm the pages it would now appear on were evicted and the others kept
+        assertThat(cacheA.get("n-pasta")).isNull();
+        assertThat(cacheA.get("a-anne")).isNull();
+        assertThat(cacheA.get("all")).isNull();
+        assertThat(cacheA.get("a-bill")).isNotNull();
+        assertThat(cacheA.get("r-5")).isNotNull();
+
+        // soup is renamed, only the page holding it changes
+        indexB.evictAffectedBy(recipe(2L, "stew", "bill"));
+        assertThat(cacheA.get("a-bill")).isNull();
+        assertThat(cacheA.get("r-5")).isNotNull();
+
+        // a review on pasta may move it onto any rating dependent page
+        indexB.evictRatingQueriesAndContaining(1L);
+        assertThat(cacheA.get("r-5")).isNull();
+    }
+
+    @Test
+    public void testReviewWriteEvictsPagesSortedByRating() {
+        KeysetRequest byRating = KeysetRequest.of("reviewRating", "desc", null, 2);
+        cachePage("all-rating", new RecipeListQuery.All(), byRating, recipe(1L, "pasta", "bill"), recipe(2L, "soup", "bill"));
+        cachePage("a-bill-rating", new RecipeListQuery.ByAuthor("bill"), byRating, recipe(1L, "pasta", "bill"));
+        cachePage("all", new RecipeListQuery.All(), recipe(1L, "pasta", "bill"), recipe(2L, "soup", "bill"));
+
+        // a review on cake may move it onto the top rated pages, though none of them holds it yet
+        indexB.evictRatingQueriesAndContaining(3L);
+
+        assertThat(cacheA.get("all-rating")).isNull();
+        assertThat(cacheA.get("a-bill-rating")).isNull();
+        assertThat(cacheA.get("all")).isNotNull();
+    }
+
+    @Test
+    public void testDeleteEvictsPagesHoldingTheRecipe() {
+        cachePage("n-cake", new RecipeListQuery.ByName("cake"), recipe(3L, "cake", "anne"));
+        cachePage("n-pasta", new RecipeListQuery.ByName("pasta"), recipe(1L, "pasta", "bill"));
+
+        indexB.evictContaining(3L);
+
+        assertThat(cacheA.get("n-cake")).isNull();
+        assertThat(cacheA.get("n-pasta")).isNotNull();
+    }
+
+    @Test
+    public void testPageIsRegisteredOnlyOnceCached() {
+        KeysetPage<Recipe> page = new KeysetPage<>(List.of(recipe(1L, "pasta", "bill")), null);
+        indexA.track("n-pasta", new RecipeListQuery.ByName("pasta"), BY_ID, page);
+
+        // a write evicting before the page is cached finds nothing yet
+        indexB.evictAffectedBy(recipe(1L, "pasta", "bill"));
+        assertThat(indexA.getTrackedEntryCount()).isZero();
+
+        // a page read after that write is registered once cached, so the next write evicts it
+        indexA.track("n-pasta", new RecipeListQuery.ByName("pasta"), BY_ID, page);
+        assertThat(indexA.getTrackedEntryCount()).isZero();
+        cacheA.put("n-pasta", "cached page");
+        assertThat(indexA.getTrackedEntryCount()).isEqualTo(1);
+        indexB.evictAffectedBy(recipe(1L, "pasta", "bill"));
+        assertThat(cacheA.get("n-pasta")).isNull();
+        assertThat(indexA.getTrackedEntryCount()).isZero();
+    }
+
+    @Test
+    public void testPageReadBeforeAWriteIsNotCached() {
+        // the page is missed and read on this node...
+        assertThat(cacheA.get("n-pasta")).isNull();
+        indexA.track("n-pasta", new RecipeListQuery.ByName("pasta"), BY_ID,
+                new KeysetPage<>(List.of(recipe(1L, "pasta", "bill")), null));
+
+        // ...a write on the other node commits and evicts before the page is put...
+        indexB.evictAffectedBy(recipe(1L, "pasta", "bill"));
+        cacheA.put("n-pasta", "cached page");
+
+        // ...so the page, which may not show the write, is not cached
+        assertThat(cacheA.get("n-pasta")).isNull();
+        assertThat(indexA.getTrackedEntryCount()).isZero();
+        assertThat(indexA.getDiscardedCount()).isPositive();
+
+        // the next read caches as usual
+        indexA.track("n-pasta", new RecipeListQuery.ByName("pasta"), BY_ID,
+                new KeysetPage<>(List.of(recipe(1L, "pasta", "bill")), null));
+        cacheA.put("n-pasta", "cached page");
+        assertThat(cacheA.get("n-pasta")).isNotNull();
+    }
+
+    @Test
+    public void testIndexIsPrunedWhenPagesLeaveTheCache() {
+        IMap<Object, Object> pages = memberA.getMap(RecipeListCacheIndex.CACHE_NAME);
+        for (int page = 0; page < 50; page++) {
+            cachePage("n-" + page, new RecipeListQuery.ByName("recipe " + page), recipe((long) page, "recipe " + page, "bill"));
+        }
+        assertThat(indexA.getTrackedEntryCount()).isEqualTo(50);
+
+        // pages evicted for space or removed outside of the index leave it as well
+        for (int page = 0; page < 25; page++) {
+            pages.evict("n-" + page);
+        }
+        for (int page = 25; page < 50; page++) {
+            pages.delete("n-" + page);
+        }
+
+        assertThat(eventually(() -> indexB.getTrackedEntryCount() == 0))
+                .as("index entries left after their pages")
+                .isTrue();
+    }
+
+    private void cachePage(String key, RecipeListQuery query, Recipe... recipes) {
+        cachePage(key, query, BY_ID, recipes);
+    }
+
+    private void cachePage(String key, RecipeListQuery query, KeysetRequest page, Recipe... recipes) {
+        // the index only reads the ids of the page, the cached value itself does not matter here
+        indexA.track(key, query, page, new KeysetPage<>(List.of(recipes), null));
+        cacheA.put(key, "cached page");
+    }
+
+    private static RecipeListCacheIndex index(HazelcastInstance member) {
+        RecipeListCacheIndex index = new RecipeListCacheIndex();
+        index.hazelcastInstance = member;
+        CacheManager cacheManager = new IndexedListCacheManager(new HazelcastCacheManager(member), index);
+        index.cacheManager = cacheManager;
+        index.init();
+        return index;
+    }
+
+    private static Recipe recipe(Long id, String name, String author) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .difficultyRating(5)
+                .user(CustomUserDetails.builder().username(author).build())
+                .build();
+    }
+
+    private static Config clusterConfig(String clusterName) {
+        Config config = new ClasspathYamlConfig("hazelcast.yaml");
+        config.setClusterName(clusterName);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        return config;
+    }
+
+    private static boolean eventually(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.getAsBoolean();
+    }
+}
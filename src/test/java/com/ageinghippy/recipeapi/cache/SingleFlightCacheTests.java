@@ -0,0 +1,163 @@
+package com.ageinghippy.recipeapi.cache;
+
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent misses on one key through SingleFlightCache. The loader holds every caller back until all the
+ * others are waiting, so each test sees the misses overlap.
+ */
+class SingleFlightCacheTests {
+
+    private static final int CALLERS = 16;
+
+    private static final long KEY = 1L;
+
+    // a new test instance per test, so each test has callers of its own
+    private final List<Thread> callers = new ArrayList<>();
+
+    // callers that reached the cache
+    private final AtomicInteger arrived = new AtomicInteger();
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        Cache cache = new SingleFlightCache(new ConcurrentMapCache("recipes"), false, 10_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Object> results = missConcurrently(List.of(cache), () -> {
+            loads.incrementAndGet();
+            awaitOthersWaiting();
+            return "recipe 1";
+        });
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(results).hasSize(CALLERS).containsOnly("recipe 1");
+        assertThat(cache.get(KEY).get()).isEqualTo("recipe 1");
+    }
+
+    @Test
+    public void testLoaderExceptionReachesEveryWaiter() throws Exception {
+        Cache cache = new SingleFlightCache(new ConcurrentMapCache("recipes"), false, 10_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Object> results = missConcurrently(List.of(cache), () -> {
+            loads.incrementAndGet();
+            awaitOthersWaiting();
+            throw new IllegalStateException("database down");
+        });
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(results).hasSize(CALLERS).allSatisfy(result -> assertThat(result)
+                .isInstanceOf(Cache.ValueRetrievalException.class)
+                .extracting(e -> ((Throwable) e).getCause().getMessage())
+                .isEqualTo("database down"));
+
+        // the failure is not cached, the next miss loads again
+        assertThat(cache.get(KEY)).isNull();
+        assertThat(cache.get(KEY, () -> "recipe 1")).isEqualTo("recipe 1");
+    }
+
+    @Test
+    public void testConcurrentMissesOnTwoNodesLoadOnce() throws Exception {
+        String clusterName = "single-flight-test-" + UUID.randomUUID();
+        HazelcastInstance memberA = Hazelcast.newHazelcastInstance(clusterConfig(clusterName));
+        HazelcastInstance memberB = Hazelcast.newHazelcastInstance(clusterConfig(clusterName));
+        try {
+            Cache cacheA = new SingleFlightCache(new HazelcastCacheManager(memberA).getCache("recipes"), true, 10_000);
+            Cache cacheB = new SingleFlightCache(new HazelcastCacheManager(memberB).getCache("recipes"), true, 10_000);
+            AtomicInteger loads = new AtomicInteger();
+
+            List<Object> results = missConcurrently(List.of(cacheA, cacheB), () -> {
+                loads.incrementAndGet();
+                awaitOthersWaiting();
+                return "recipe 1";
+            });
+
+            // the leader on the other node waited for the cluster lock, then found the value cached
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(results).hasSize(CALLERS).containsOnly("recipe 1");
+        } finally {
+            memberB.shutdown();
+            memberA.shutdown();
+        }
+    }
+
+    /**
+     * Miss on the key from every caller at once, the callers spread over the caches.
+     *
+     * @return {@code List<Object>} what each caller got, the value or the exception thrown
+     */
+    private List<Object> missConcurrently(List<Cache> caches, Callable<Object> loader) throws Exception {
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < CALLERS; i++) {
+            int caller = i;
+            Cache cache = caches.get(i % caches.size());
+            callers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    arrived.incrementAndGet();
+                    results.set(caller, cache.get(KEY, loader));
+                } catch (Throwable e) {
+                    results.set(caller, e);
+                }
+            }, "caller-" + i));
+        }
+        callers.forEach(Thread::start);
+        start.countDown();
+        for (Thread caller : callers) {
+            caller.join(30_000);
+        }
+
+        List<Object> collected = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            collected.add(results.get(i));
+        }
+        return collected;
+    }
+
+    // every caller but the one loading reached the cache and is blocked, on the leader's result or on the
+    // cluster lock
+    private void awaitOthersWaiting() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean allWaiting = arrived.get() == CALLERS && callers.stream()
+                    .filter(caller -> caller != Thread.currentThread())
+                    .allMatch(caller -> caller.getState() == Thread.State.WAITING
+                            || caller.getState() == Thread.State.TIMED_WAITING);
+            if (allWaiting) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("callers did not all wait for the loader");
+    }
+
+    private static Config clusterConfig(String clusterName) {
+        Config config = new ClasspathYamlConfig("hazelcast.yaml");
+        config.setClusterName(clusterName);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        return config;
+    }
+}
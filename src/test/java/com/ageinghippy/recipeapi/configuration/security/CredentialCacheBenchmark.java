@@ -0,0 +1,85 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.Role;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Authentications per second of HTTP Basic credentials with and without the verified credential cache.
+ * The user lookup is in memory, so the uncached figure is the BCrypt cost alone. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class CredentialCacheBenchmark {
+
+    private static final int THREADS = 4;
+    private static final long DURATION_MILLIS = 5_000;
+    private static final String PASSWORD = "password";
+
+    @Test
+    public void compareAuthenticationThroughput() throws Exception {
+        double uncached = measure(false);
+        double cached = measure(true);
+
+        System.out.printf("without credential cache: %,.0f authentications/s%n", uncached);
+        System.out.printf("with credential cache:    %,.0f authentications/s%n", cached);
+        assertThat(cached).isGreaterThan(uncached);
+    }
+
+    private double measure(boolean cacheEnabled) throws Exception {
+        CachingAuthenticationProvider provider = provider(cacheEnabled);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            counts.add(executor.submit(() -> {
+                long authentications = 0;
+                while (System.currentTimeMillis() < deadline) {
+                    provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", PASSWORD));
+                    authentications++;
+                }
+                return authentications;
+            }));
+        }
+
+        long total = 0;
+        for (Future<Long> count : counts) {
+            total += count.get();
+        }
+        executor.shutdown();
+        return total * 1000.0 / DURATION_MILLIS;
+    }
+
+    private static CachingAuthenticationProvider provider(boolean cacheEnabled) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        String passwordHash = encoder.encode(PASSWORD);
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache();
+        cache.ttlSeconds = 300;
+        cache.maxSize = 10_000;
+        cache.init();
+
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider();
+        provider.userDetailsService = username -> CustomUserDetails.builder()
+                .username(username)
+                .password(passwordHash)
+                .authorities(List.of(new Role(Role.Roles.ROLE_USER)))
+                .build();
+        provider.passwordEncoder = encoder;
+        provider.verifiedCredentialCache = cache;
+        provider.enabled = cacheEnabled;
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,108 @@
+package com.ageinghippy.recipeapi.configuration.security;
+
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.Role;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.ReviewRepo;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The ownership check behind hasPermission, with the owners looked up through OwnerLookup over a local cache.
+ */
+class OwnerLookupTests {
+
+    private RecipeRepo recipeRepo;
+
+    private ReviewRepo reviewRepo;
+
+    private CustomPermissionEvaluator permissionEvaluator;
+
+    @BeforeEach
+    public void setup() {
+        recipeRepo = mock(RecipeRepo.class);
+        reviewRepo = mock(ReviewRepo.class);
+        when(recipeRepo.findAuthorUsernameById(1L)).thenReturn(Optional.of("bob"));
+        when(recipeRepo.findAuthorUsernameById(99L)).thenReturn(Optional.empty());
+        when(reviewRepo.findAuthorUsernameById(2L)).thenReturn(Optional.of("sally"));
+        when(reviewRepo.findAuthorUsernameById(99L)).thenReturn(Optional.empty());
+
+        OwnerLookup ownerLookup = new OwnerLookup();
+        ownerLookup.recipeRepo = recipeRepo;
+        ownerLookup.reviewRepo = reviewRepo;
+        ownerLookup.cacheManager = new ConcurrentMapCacheManager(OwnerLookup.CACHE_NAME);
+
+        permissionEvaluator = new CustomPermissionEvaluator();
+        permissionEvaluator.ownerLookup = ownerLookup;
+    }
+
+    @Test
+    public void testOwnerIsAllowed() {
+        assertThat(permissionEvaluator.hasPermission(user("bob"), 1L, "Recipe", "edit")).isTrue();
+        assertThat(permissionEvaluator.hasPermission(user("sally"), 2L, "Review", "delete")).isTrue();
+    }
+
+    @Test
+    public void testOtherUserIsDenied() {
+        assertThat(permissionEvaluator.hasPermission(user("sally"), 1L, "Recipe", "edit")).isFalse();
+        assertThat(permissionEvaluator.hasPermission(user("bob"), 2L, "Review", "delete")).isFalse();
+    }
+
+    @Test
+    public void testAdminIsAllowed() {
+        assertThat(permissionEvaluator.hasPermission(admin("mark"), 1L, "Recipe", "delete")).isTrue();
+        assertThat(permissionEvaluator.hasPermission(admin("mark"), 2L, "Review", "edit")).isTrue();
+    }
+
+    @Test
+    public void testOwnerIsLookedUpOnce() {
+        // allow and deny alike are answered from the cached owner after the first check
+        permissionEvaluator.hasPermission(user("bob"), 1L, "Recipe", "edit");
+        assertThat(permissionEvaluator.hasPermission(user("sally"), 1L, "Recipe", "edit")).isFalse();
+        assertThat(permissionEvaluator.hasPermission(user("bob"), 1L, "Recipe", "delete")).isTrue();
+
+        verify(recipeRepo, times(1)).findAuthorUsernameById(1L);
+    }
+
+    @Test
+    public void testMissingTargets() {
+        // the recipe service reports a missing recipe itself
+        assertThat(permissionEvaluator.hasPermission(user("sally"), 99L, "Recipe", "edit")).isTrue();
+        assertThatThrownBy(() -> permissionEvaluator.hasPermission(user("sally"), 99L, "Review", "edit"))
+                .isInstanceOf(EntityNotFoundException.class);
+
+        // misses are not cached, so a recipe created later is checked against its owner
+        when(recipeRepo.findAuthorUsernameById(99L)).thenReturn(Optional.of("bob"));
+        assertThat(permissionEvaluator.hasPermission(user("sally"), 99L, "Recipe", "edit")).isFalse();
+    }
+
+    private static Authentication user(String username) {
+        return authentication(username, new Role(Role.Roles.ROLE_USER));
+    }
+
+    private static Authentication admin(String username) {
+        return authentication(username, new Role(Role.Roles.ROLE_USER), new Role(Role.Roles.ROLE_ADMIN));
+    }
+
+    private static Authentication authentication(String username, Role... roles) {
+        CustomUserDetails user = CustomUserDetails.builder()
+                .username(username)
+                .authorities(List.of(roles))
+                .build();
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+}
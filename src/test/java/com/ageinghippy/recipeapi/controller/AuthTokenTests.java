@@ -0,0 +1,163 @@
+package com.ageinghippy.recipeapi.controller;
+
+import com.ageinghippy.recipeapi.TestUtil;
+import com.ageinghippy.recipeapi.configuration.security.TokenDenyList;
+import com.ageinghippy.recipeapi.configuration.security.TokenService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bearer tokens from POST /auth/token: logging in, checking them and revoking them.
+ * Every test creates a user of its own, so revocations do not reach the shared test users.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthTokenTests {
+
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TokenService tokenService;
+
+    @Autowired
+    TokenDenyList tokenDenyList;
+
+    @Test
+    public void testTokenLogin() throws Exception {
+        String username = newUser();
+
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("tokenType").value("Bearer"))
+                .andExpect(jsonPath("expiresIn").value(15 * 60));
+
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, "wrong password")))
+                .andExpect(status().isUnauthorized());
+
+        // the token carries the user, without the password
+        Jwt token = tokenService.getDecoder().decode(login(username));
+        assertThat(token.getSubject()).isEqualTo(username);
+        assertThat(token.getIssuer().toString()).isEqualTo(TokenService.ISSUER);
+        assertThat(token.getClaims()).doesNotContainKey("password");
+    }
+
+    @Test
+    public void testTokenValidation() throws Exception {
+        String token = login(newUser());
+
+        // a valid token authenticates, but is not exchanged for another
+        mockMvc.perform(post("/auth/token").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isBadRequest());
+
+        // a token whose payload was changed no longer matches its signature
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "AA." + parts[2];
+        mockMvc.perform(post("/auth/token").header(HttpHeaders.AUTHORIZATION, "Bearer " + tampered))
+                .andExpect(status().isUnauthorized());
+        assertThatThrownBy(() -> tokenService.getDecoder().decode(tampered)).isInstanceOf(JwtException.class);
+
+        mockMvc.perform(post("/auth/token").header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRevokeToken() throws Exception {
+        String username = newUser();
+        String revoked = login(username);
+        String kept = login(username);
+
+        mockMvc.perform(post("/auth/revoke").header(HttpHeaders.AUTHORIZATION, "Bearer " + revoked))
+                .andExpect(status().isOk());
+
+        // confirm only the revoked token stopped working
+        mockMvc.perform(post("/auth/revoke").header(HttpHeaders.AUTHORIZATION, "Bearer " + revoked))
+                .andExpect(status().isUnauthorized());
+        assertThat(tokenService.getDecoder().decode(kept).getSubject()).isEqualTo(username);
+    }
+
+    @Test
+    public void testRevokeAllForKeepsTokensIssuedAfterIt() throws Exception {
+        String username = newUser();
+        String before = login(username);
+
+        tokenDenyList.revokeAllFor(username);
+        // issued straight after, most likely within the same second as the revocation
+        String after = login(username);
+
+        assertThatThrownBy(() -> tokenService.getDecoder().decode(before)).isInstanceOf(JwtValidationException.class);
+        assertThat(tokenService.getDecoder().decode(after).getSubject()).isEqualTo(username);
+
+        // a second revocation straight after the first still revokes the tokens issued in between
+        tokenDenyList.revokeAllFor(username);
+        assertThatThrownBy(() -> tokenService.getDecoder().decode(after)).isInstanceOf(JwtValidationException.class);
+    }
+
+    @Test
+    public void testPasswordChangeRevokesTokens() throws Exception {
+        String username = newUser();
+        String token = login(username);
+
+        mockMvc.perform(put("/user/password")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType("application/json")
+                        .content(TestUtil.convertObjectToJsonBytes(new UserController.PasswordChange(PASSWORD, "new password"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/auth/revoke").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+
+        // logging in with the new password straight away gives a working token
+        String renewed = JsonPath.read(mockMvc.perform(post("/auth/token").with(httpBasic(username, "new password")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.accessToken");
+        mockMvc.perform(post("/auth/revoke").header(HttpHeaders.AUTHORIZATION, "Bearer " + renewed))
+                .andExpect(status().isOk());
+    }
+
+    private String login(String username) throws Exception {
+        String response = mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.accessToken");
+    }
+
+    private String newUser() throws Exception {
+        String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+        // the password is write only, so the request body is built by hand
+        Map<String, Object> user = Map.of(
+                "username", username,
+                "password", PASSWORD,
+                "authorities", List.of(),
+                "userMeta", Map.of("name", username, "email", username + "@email.com"));
+        mockMvc.perform(post("/user")
+                        .contentType("application/json")
+                        .content(TestUtil.convertObjectToJsonBytes(user)))
+                .andExpect(status().isOk());
+        return username;
+    }
+}
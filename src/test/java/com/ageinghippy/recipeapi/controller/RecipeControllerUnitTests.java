@@ -1,9 +1,13 @@
 package com.ageinghippy.recipeapi.controller;
 
 import com.ageinghippy.recipeapi.TestUtil;
+import com.ageinghippy.recipeapi.cache.HotKeyTracker;
+import com.ageinghippy.recipeapi.diagnostics.TraceStore;
 import com.ageinghippy.recipeapi.exception.NoSuchRecipeException;
 import com.ageinghippy.recipeapi.exception.ResponseErrorMessage;
 import com.ageinghippy.recipeapi.model.*;
+import com.ageinghippy.recipeapi.paging.KeysetPage;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
 import com.ageinghippy.recipeapi.service.RecipeService;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +29,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -48,6 +53,12 @@ class RecipeControllerUnitTests {
     @MockitoBean
     RecipeService recipeService;
 
+    @MockitoBean
+    HotKeyTracker hotKeyTracker;
+
+    @MockitoBean
+    TraceStore traceStore;
+
     @BeforeAll
     //Initialise 4 recipes for use by following tests
     public void setup() {
@@ -298,8 +309,8 @@ class RecipeControllerUnitTests {
     @WithMockUser(roles = "ANONYMOUS")
     public void testGetAllRecipesSuccessBehavior() throws Exception {
 
-        when(recipeService.getAllRecipes())
-                .thenReturn(List.of(recipe1, recipe2, recipe3, recipe4));
+        when(recipeService.getAllRecipes(any(KeysetRequest.class)))
+                .thenReturn(new KeysetPage<>(List.of(recipe1, recipe2, recipe3, recipe4), null));
 
         // set up get request for all recipe endpoint
         mockMvc.perform(get("/recipe"))
@@ -427,8 +438,10 @@ class RecipeControllerUnitTests {
     @WithMockUser(roles = "ANONYMOUS")
     public void testGetRecipesByNameSuccessBehavior() throws Exception {
 
-        when(recipeService.getRecipesByName("recipe")).thenReturn(List.of(recipe1, recipe2, recipe3));
-        when(recipeService.getRecipesByName("potato")).thenReturn(List.of(recipe4));
+        when(recipeService.getRecipesByName(eq("recipe"), any(KeysetRequest.class)))
+                .thenReturn(new KeysetPage<>(List.of(recipe1, recipe2, recipe3), null));
+        when(recipeService.getRecipesByName(eq("potato"), any(KeysetRequest.class)))
+                .thenReturn(new KeysetPage<>(List.of(recipe4), null));
 
         // get request to search for recipes with names including "recipe"
         MvcResult mvcResult =
@@ -487,7 +500,7 @@ class RecipeControllerUnitTests {
     @WithMockUser(roles = "ANONYMOUS")
     public void testGetRecipeByNameFailureBehavior() throws Exception {
 
-        when(recipeService.getRecipesByName(anyString())).thenThrow(new NoSuchRecipeException("Random error message"));
+        when(recipeService.getRecipesByName(anyString(), any(KeysetRequest.class))).thenThrow(new NoSuchRecipeException("Random error message"));
 
         byte[] contentAsByteArray = mockMvc.perform(
                         get("/recipe/search/should not exist"))
@@ -569,7 +582,7 @@ class RecipeControllerUnitTests {
     //todo - not acting as expected. @PreAuthorize not being evaluated
     public void testGetAllRecipesFailureBehavior() throws Exception {
 
-        when(recipeService.getAllRecipes()).thenThrow(new NoSuchRecipeException("A message here"));
+        when(recipeService.getAllRecipes(any(KeysetRequest.class))).thenThrow(new NoSuchRecipeException("A message here"));
 
         // perform GET all recipes
         mockMvc.perform(get("/recipe"))
@@ -2,17 +2,35 @@ package com.ageinghippy.recipeapi.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.ageinghippy.recipeapi.TestUtil;
+import com.ageinghippy.recipeapi.cache.HotKeyTracker;
+import com.ageinghippy.recipeapi.configuration.CacheWarmUp;
+import com.ageinghippy.recipeapi.configuration.ReviewAggregateBackfill;
+import com.ageinghippy.recipeapi.diagnostics.StatementBudgetInterceptor;
 import com.ageinghippy.recipeapi.exception.ResponseErrorMessage;
+import com.ageinghippy.recipeapi.model.CustomUserDetails;
+import com.ageinghippy.recipeapi.model.HotKey;
 import com.ageinghippy.recipeapi.model.Ingredient;
 import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.model.Review;
 import com.ageinghippy.recipeapi.model.Step;
+import com.ageinghippy.recipeapi.paging.KeysetRequest;
+import com.ageinghippy.recipeapi.repository.HotKeyRepo;
 import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.UserRepo;
+import com.ageinghippy.recipeapi.search.RecipeIngredientIndex;
+import com.ageinghippy.recipeapi.search.RecipeNameIndex;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -20,7 +38,9 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithUserDetails;
@@ -28,9 +48,15 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "recipeapi.sql.statement-budget.enforce=true"})
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -42,6 +68,51 @@ class RecipeapiApplicationTests {
     @Autowired
     RecipeRepo recipeRepo;
 
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    StatementBudgetInterceptor statementBudgetInterceptor;
+
+    @Autowired
+    HotKeyRepo hotKeyRepo;
+
+    @Autowired
+    CacheWarmUp cacheWarmUp;
+
+    @Autowired
+    HotKeyTracker hotKeyTracker;
+
+    @Autowired
+    UserRepo userRepo;
+
+    @Autowired
+    ReviewAggregateBackfill reviewAggregateBackfill;
+
+    @Autowired
+    RecipeNameIndex recipeNameIndex;
+
+    @Autowired
+    RecipeIngredientIndex recipeIngredientIndex;
+
+    // recipes seeded for the statement count tests, half a page or more for every listing
+    private static final int SEEDED_RECIPES = 60;
+
+    // statements allowed to list a page, whatever its size: the page with its authors, each author's
+    // authorities and meta, the page's ingredients, steps and reviews, and the reviewers with theirs
+    private static final long LIST_STATEMENT_BUDGET = 9;
+
+    // no endpoint may run more statements than its @StatementBudget, so lazy loading storms are caught
+    @AfterEach
+    public void checkStatementBudgets() {
+        List<String> violations = statementBudgetInterceptor.getViolations();
+        statementBudgetInterceptor.clearViolations();
+        assertThat(violations).as("requests over their statement budget").isEmpty();
+    }
+
     @Test
     @Order(1)
     public void testGetRecipeByIdSuccessBehavior() throws Exception {
@@ -86,6 +157,59 @@ class RecipeapiApplicationTests {
                         .value("No recipe with ID " + recipeId + " could be found."));
     }
 
+    @Test
+    @Order(2)
+    public void testGetRecipeByIdEncodings() throws Exception {
+        final long recipeId = 1;
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        // a client accepting gzip is sent the stored gzip bytes, with an ETag of their own
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/recipe/" + recipeId)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+
+        // confirm the encoded recipe was cached
+        assertThat(cacheManager.getCache("recipeJson").get(recipeId)).isNotNull();
+
+        // any other client is sent the JSON as is
+        MockHttpServletResponse identity = mockMvc.perform(get("/recipe/" + recipeId)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(jsonPath("id").value(recipeId))
+                .andReturn().getResponse();
+
+        // confirm both encodings hold the same recipe under different strong validators
+        try (GZIPInputStream unzipped = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertThat(unzipped.readAllBytes()).isEqualTo(identity.getContentAsByteArray());
+        }
+        String gzipETag = gzipped.getHeader(HttpHeaders.ETAG);
+        String identityETag = identity.getHeader(HttpHeaders.ETAG);
+        assertThat(gzipETag).endsWith("-gz\"");
+        assertThat(identityETag).isNotEqualTo(gzipETag);
+
+        // each validator only revalidates the encoding it was issued for
+        mockMvc.perform(get("/recipe/" + recipeId)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, gzipETag))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)));
+        mockMvc.perform(get("/recipe/" + recipeId)
+                        .header(HttpHeaders.IF_NONE_MATCH, identityETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, identityETag));
+        mockMvc.perform(get("/recipe/" + recipeId)
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipETag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, identityETag));
+    }
+
     @Test
     @Order(3)
     public void testGetAllRecipesSuccessBehavior() throws Exception {
@@ -284,6 +408,37 @@ class RecipeapiApplicationTests {
                 "No recipes could be found with that name.");
     }
 
+    @Test
+    @Order(7)
+    public void testGetRecipesByIngredientsBehavior() throws Exception {
+
+        // the recipe created in testCreateNewRecipeSuccessBehavior was indexed, names compare ignoring case and spacing
+        mockMvc.perform(get("/recipe/search/ingredients").param("include", " Brown  Sugar"))
+                // expect 200 OK
+                .andExpect(status().isOk())
+                // expect only the caramel
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("caramel in a pan"));
+
+        // every included ingredient is required
+        mockMvc.perform(get("/recipe/search/ingredients").param("include", "chocolate,potato chips"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("chocolate and potato chips"));
+
+        // and no excluded one may be used
+        mockMvc.perform(get("/recipe/search/ingredients")
+                        .param("include", "chocolate")
+                        .param("exclude", "potato chips"))
+                // expect 404 NOT FOUND
+                .andExpect(status().isNotFound());
+
+        // at least one ingredient has to be included
+        mockMvc.perform(get("/recipe/search/ingredients").param("include", " "))
+                // expect 400 BAD REQUEST
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Order(8)
     @WithUserDetails("mark")
@@ -333,8 +488,400 @@ class RecipeapiApplicationTests {
 
 
     @Test
-    // make sure this test runs last
+    @Order(10)
+    public void testGetAllRecipesPagedBehavior() throws Exception {
+
+        // request the first page of two recipes
+        MockHttpServletResponse firstPage = mockMvc.perform(get("/recipe").param("limit", "2"))
+                // expect status is 200 OK
+                .andExpect(status().isOk())
+                // expect only the first two recipes
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                // expect a cursor to the next page
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andReturn().getResponse();
+
+        // follow the cursors to the last page, whatever other tests have added by now
+        List<Integer> ids = new ArrayList<>(JsonPath.read(firstPage.getContentAsString(), "$[*].id"));
+        String cursor = firstPage.getHeader("X-Next-Cursor");
+        while (cursor != null) {
+            MockHttpServletResponse page = mockMvc.perform(get("/recipe")
+                            .param("limit", "2")
+                            .param("cursor", cursor))
+                    // expect status is 200 OK
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(greaterThanOrEqualTo(1))))
+                    .andReturn().getResponse();
+            ids.addAll(JsonPath.read(page.getContentAsString(), "$[*].id"));
+            cursor = page.getHeader("X-Next-Cursor");
+        }
+
+        // expect every recipe exactly once, in id order, and no further cursor after the last page
+        assertThat(ids).isSorted().doesNotHaveDuplicates().hasSize((int) recipeRepo.count());
+
+        // a cursor issued for one sort order cannot be used with another
+        mockMvc.perform(get("/recipe")
+                        .param("sort", "name")
+                        .param("cursor", firstPage.getHeader("X-Next-Cursor")))
+                // expect 400 BAD REQUEST
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    // seeds many rows, so it runs after the tests that look at the test data
     @Order(11)
+    public void testListEndpointsStatementCount() throws Exception {
+        // enough rows that a statement per recipe, review or author would blow the budget many times over
+        long reviewedRecipeId = seedRecipes(SEEDED_RECIPES);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (String endpoint : List.of(
+                "/recipe",
+                "/recipe/all",
+                "/recipe?name=recipe",
+                "/recipe?name=recipe&maximumDifficultyRating=10",
+                "/recipe?author=bob",
+                "/recipe?minimumReviewRating=1",
+                "/recipe/search/recipe",
+                "/review/recipe/" + reviewedRecipeId,
+                "/review/user/idfk")) {
+
+            // make sure the endpoint reads from the database rather than the cache
+            cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+            statistics.clear();
+
+            mockMvc.perform(get(endpoint).param("limit", String.valueOf(KeysetRequest.MAX_LIMIT)))
+                    // expect status is 200 OK
+                    .andExpect(status().isOk())
+                    // confirm the page is big enough for an N+1 to show
+                    .andExpect(jsonPath("$", hasSize(greaterThanOrEqualTo(SEEDED_RECIPES / 2))));
+
+            // confirm the number of statements does not depend on the number of rows listed
+            assertThat(statistics.getPrepareStatementCount())
+                    .as("statements executed for " + endpoint)
+                    .isLessThanOrEqualTo(LIST_STATEMENT_BUDGET);
+        }
+    }
+
+    @Test
+    @Order(10)
+    @WithUserDetails("bob")
+    public void testCreateRecipeDoesNotReloadIt() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        postRecipe("one of everything", 1);
+        long smallStatements = statistics.getPrepareStatementCount();
+        long smallLoads = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+        statistics.clear();
+        postRecipe("twenty of everything", 20);
+        long largeStatements = statistics.getPrepareStatementCount();
+        long largeLoads = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+        // the response is built from the saved state, so nothing is read back per ingredient or step...
+        assertThat(largeLoads)
+                .as("entities and collections loaded for a recipe of twenty ingredients and steps")
+                .isEqualTo(smallLoads);
+        // ...and the only statements a bigger recipe adds are the writes of its rows
+        assertThat(largeStatements - smallStatements)
+                .as("statements added by 19 more ingredients and 19 more steps")
+                .isLessThanOrEqualTo(2 * 19 * 2);
+    }
+
+    @Test
+    @Order(10)
+    @WithUserDetails("bob")
+    public void testPatchRecipeStatementCount() throws Exception {
+        long small = postRecipe("patched with one of everything", 1);
+        long large = postRecipe("patched with twenty of everything", 20);
+
+        // the patched recipe is read once and returned from the saved state, whatever its size
+        assertThat(statementsToPatch(large))
+                .as("statements to patch a recipe of twenty ingredients and steps")
+                .isEqualTo(statementsToPatch(small));
+    }
+
+    private long statementsToPatch(long recipeId) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics.clear();
+
+        mockMvc.perform(patch("/recipe")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(Map.of("id", recipeId, "difficultyRating", 9))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("difficultyRating").value(9));
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    @Order(10)
+    @WithUserDetails("mark")
+    public void testPostReviewStatementCount() throws Exception {
+        long small = saveReviewedRecipe(4);
+        long large = saveReviewedRecipe(40);
+
+        // the review is inserted without loading the recipe's other reviews; the response reads the recipe
+        // back in a fixed number of statements, as the reviews of both recipes are by the same four users
+        long smallStatements = statementsToPostReview(small);
+        long largeStatements = statementsToPostReview(large);
+        // ids come from pooled sequences, so either insert may also fetch the next block of review ids
+        assertThat(Math.abs(largeStatements - smallStatements))
+                .as("statements added by 36 more reviews (%d against %d)", largeStatements, smallStatements)
+                .isLessThanOrEqualTo(1);
+    }
+
+    private long statementsToPostReview(long recipeId) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics.clear();
+
+        mockMvc.perform(post("/review/" + recipeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(Map.of("rating", 10, "description", "perfect"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("id").value(recipeId));
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Save a recipe by bob with reviews by idfk, sally, ben and bill in turn, straight through the repository
+     *
+     * @param reviewCount
+     * @return {@code long} the id of the recipe
+     */
+    private long saveReviewedRecipe(int reviewCount) {
+        List<CustomUserDetails> reviewers = List.of(userRepo.findByUsername("idfk"), userRepo.findByUsername("sally"),
+                userRepo.findByUsername("ben"), userRepo.findByUsername("bill"));
+        Recipe recipe = Recipe.builder()
+                .name("reviewed " + reviewCount + " times")
+                .difficultyRating(3)
+                .minutesToMake(10)
+                .user(userRepo.findByUsername("bob"))
+                .ingredients(List.of(Ingredient.builder().name("flour").amount("1 cup").build()))
+                .steps(List.of(Step.builder().stepNumber(1).description("bake").build()))
+                .build();
+        List<Review> reviews = new ArrayList<>();
+        for (int r = 0; r < reviewCount; r++) {
+            reviews.add(Review.builder()
+                    .user(reviewers.get(r % reviewers.size()))
+                    .rating(r % 10 + 1)
+                    .description("review " + r)
+                    .recipe(recipe)
+                    .build());
+        }
+        recipe.setReviews(reviews);
+        return recipeRepo.save(recipe).getId();
+    }
+
+    private long postRecipe(String name, int size) throws Exception {
+        List<Ingredient> ingredients = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            ingredients.add(Ingredient.builder().name("ingredient " + i).state("dry").amount("1 cup").build());
+            steps.add(Step.builder().description("step " + i).stepNumber(i).build());
+        }
+        Recipe recipe = Recipe.builder()
+                .name(name)
+                .difficultyRating(3)
+                .minutesToMake(10)
+                .ingredients(ingredients)
+                .steps(steps)
+                .build();
+        String created = mockMvc.perform(post("/recipe")
+                        .contentType("application/json")
+                        .content(TestUtil.convertObjectToJsonBytes(recipe)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("ingredients", hasSize(size)))
+                .andExpect(jsonPath("steps", hasSize(size)))
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(created, "$.id")).longValue();
+    }
+
+    /**
+     * Seed recipes alternately by bob and mark, each with two ingredients, two steps and reviews by idfk
+     * and sally, then bring the review aggregates and search indexes up to date.
+     *
+     * @param count
+     * @return {@code long} the id of the first seeded recipe, which is also reviewed many times over
+     */
+    private long seedRecipes(int count) {
+        List<CustomUserDetails> authors = List.of(userRepo.findByUsername("bob"), userRepo.findByUsername("mark"));
+        List<CustomUserDetails> reviewers = List.of(userRepo.findByUsername("idfk"), userRepo.findByUsername("sally"),
+                userRepo.findByUsername("ben"), userRepo.findByUsername("bill"));
+
+        Long firstId = null;
+        for (int i = 0; i < count; i++) {
+            Recipe recipe = Recipe.builder()
+                    .name("seeded recipe " + i)
+                    .difficultyRating(i % 10 + 1)
+                    .minutesToMake(10)
+                    .user(authors.get(i % 2))
+                    .ingredients(List.of(
+                            Ingredient.builder().name("flour").amount("1 cup").build(),
+                            Ingredient.builder().name("seed " + i).amount("1 handful").build()))
+                    .steps(List.of(
+                            Step.builder().stepNumber(1).description("mix").build(),
+                            Step.builder().stepNumber(2).description("bake").build()))
+                    .build();
+            int reviewCount = i == 0 ? SEEDED_RECIPES : 2;
+            List<Review> reviews = new ArrayList<>();
+            for (int r = 0; r < reviewCount; r++) {
+                reviews.add(Review.builder()
+                        .user(reviewers.get(r % reviewers.size()))
+                        .rating((i + r) % 10 + 1)
+                        .description("seeded review " + r)
+                        .recipe(recipe)
+                        .build());
+            }
+            recipe.setReviews(reviews);
+            Recipe saved = recipeRepo.save(recipe);
+            if (firstId == null) {
+                firstId = saved.getId();
+            }
+        }
+
+        // seeded rows bypass the services, as the test data does
+        reviewAggregateBackfill.backfill();
+        recipeNameIndex.rebuild();
+        recipeIngredientIndex.rebuild();
+        return firstId;
+    }
+
+    @Test
+    @Order(10)
+    public void testCacheWarmUpLoadsHotRecipes() throws Exception {
+        final long recipeId = 1;
+        final String hotKey = HotKeyTracker.RECIPE + HotKeyTracker.SEPARATOR + recipeId;
+        final String missingKey = HotKeyTracker.RECIPE + HotKeyTracker.SEPARATOR + 5000;
+
+        // a hot recipe, and a hot key for a recipe that no longer exists
+        hotKeyRepo.save(HotKey.builder().cacheKey(hotKey).hits(100).build());
+        hotKeyRepo.save(HotKey.builder().cacheKey(missingKey).hits(50).build());
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        // warm up as on startup, outside of any request
+        assertThat(cacheWarmUp.warmUp()).isPositive();
+
+        // confirm the recipe was cached and the missing one's key dropped
+        assertThat(cacheManager.getCache("recipes").get(recipeId)).isNotNull();
+        assertThat(hotKeyRepo.existsById(missingKey)).isFalse();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/recipe/" + recipeId))
+                // expect status is 200 OK
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(recipeId));
+
+        // confirm the recipe was served from the warmed cache
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements executed for a warmed recipe")
+                .isZero();
+    }
+
+    @Test
+    @Order(10)
+    public void testHotKeysAreAddedUp() throws Exception {
+        final String hotKey = HotKeyTracker.RECIPE + HotKeyTracker.SEPARATOR + 2;
+        // start from no counted requests, whatever earlier tests asked for
+        hotKeyTracker.flush();
+        hotKeyRepo.save(HotKey.builder().cacheKey(hotKey).hits(10).build());
+
+        // a search text longer than a hot key may be is not tracked, and does not stop the others being saved
+        mockMvc.perform(get("/recipe").param("name", "x".repeat(HotKey.MAX_KEY_LENGTH)));
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/recipe/2")).andExpect(status().isOk());
+        }
+        hotKeyTracker.flush();
+
+        // confirm the new hits were added to the decayed ones of the existing key
+        assertThat(hotKeyRepo.findById(hotKey)).get()
+                .extracting(HotKey::getHits)
+                .isEqualTo(10L / 2 + 3);
+        assertThat(hotKeyRepo.findAll())
+                .allSatisfy(key -> assertThat(key.getCacheKey()).hasSizeLessThanOrEqualTo(HotKey.MAX_KEY_LENGTH));
+    }
+
+    @Test
+    @Order(10)
+    @WithUserDetails("bob")
+    public void testNewRecipeEndsCachedMisses() throws Exception {
+        // searches for a recipe that does not exist yet are remembered as misses
+        mockMvc.perform(get("/recipe/search/{name}", "zucchini bread"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/recipe/search/{name}", "Zucchini"))
+                .andExpect(status().isNotFound());
+
+        postRecipe("Grandma's Zucchini Bread", 1);
+
+        // confirm both searches find it straight away, the whole name and part of it
+        mockMvc.perform(get("/recipe/search/{name}", "zucchini bread"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Grandma's Zucchini Bread"));
+        mockMvc.perform(get("/recipe/search/{name}", "Zucchini"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @Order(10)
+    @WithUserDetails("mark")
+    public void testReviewWritesRefreshOnlyTheReviewedRecipe() throws Exception {
+        final long recipeId = 4;
+
+        // posting a review responds with the reviewed recipe, as it always has
+        String posted = mockMvc.perform(post("/review/" + recipeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(Map.of("rating", 4, "description", "too salty"))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, containsString("/recipes/" + recipeId)))
+                .andExpect(jsonPath("id").value(recipeId))
+                .andExpect(jsonPath("reviews", hasSize(2)))
+                .andExpect(jsonPath("reviewRating").value(7))
+                .andReturn().getResponse().getContentAsString();
+        List<Integer> reviewIds = JsonPath.read(posted, "$.reviews[?(@.author == 'mark')].id");
+        final long reviewId = reviewIds.getFirst();
+
+        // an update only evicts the reviewed recipe
+        cacheBothRecipes(recipeId);
+        mockMvc.perform(patch("/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(Map.of("id", reviewId, "rating", 6))))
+                .andExpect(status().isOk());
+        assertThat(cacheManager.getCache("recipes").get(recipeId)).isNull();
+        assertThat(cacheManager.getCache("recipeJson").get(recipeId)).isNull();
+        assertThat(cacheManager.getCache("recipes").get(1L)).isNotNull();
+        assertThat(cacheManager.getCache("recipeJson").get(1L)).isNotNull();
+        mockMvc.perform(get("/recipe/" + recipeId))
+                .andExpect(jsonPath("reviewRating").value(8));
+
+        // and so does a delete
+        cacheBothRecipes(recipeId);
+        mockMvc.perform(delete("/review/" + reviewId))
+                .andExpect(status().isOk());
+        assertThat(cacheManager.getCache("recipes").get(recipeId)).isNull();
+        assertThat(cacheManager.getCache("recipeJson").get(recipeId)).isNull();
+        assertThat(cacheManager.getCache("recipes").get(1L)).isNotNull();
+        mockMvc.perform(get("/recipe/" + recipeId))
+                .andExpect(jsonPath("reviews", hasSize(1)))
+                .andExpect(jsonPath("reviewRating").value(10));
+    }
+
+    private void cacheBothRecipes(long recipeId) throws Exception {
+        for (long id : new long[]{1, recipeId}) {
+            mockMvc.perform(get("/recipe/" + id)).andExpect(status().isOk());
+            assertThat(cacheManager.getCache("recipes").get(id)).isNotNull();
+        }
+    }
+
+    @Test
+    // make sure this test runs last
+    @Order(12)
     public void testGetAllRecipesFailureBehavior() throws Exception {
 
         // delete all entries to force error
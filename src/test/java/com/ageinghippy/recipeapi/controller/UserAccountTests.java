@@ -0,0 +1,145 @@
+package com.ageinghippy.recipeapi.controller;
+
+import com.ageinghippy.recipeapi.TestUtil;
+import com.ageinghippy.recipeapi.configuration.security.VerifiedCredentialCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Password changes and account status changes, which must stop remembered credentials from working.
+ * Every test creates a user of its own, so the shared test users keep their passwords.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserAccountTests {
+
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    @Test
+    public void testChangePasswordInvalidatesRememberedCredentials() throws Exception {
+        String username = newUser();
+
+        // log in, so the credentials are remembered
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk());
+        assertThat(verifiedCredentialCache.get(verifiedCredentialCache.keyFor(username, PASSWORD))).isNotNull();
+
+        mockMvc.perform(put("/user/password")
+                        .with(httpBasic(username, PASSWORD))
+                        .contentType("application/json")
+                        .content(TestUtil.convertObjectToJsonBytes(new UserController.PasswordChange(PASSWORD, "new password"))))
+                .andExpect(status().isOk());
+
+        // confirm the old password was forgotten and no longer works
+        assertThat(verifiedCredentialCache.get(verifiedCredentialCache.keyFor(username, PASSWORD))).isNull();
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isUnauthorized());
+
+        // and the new one does
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, "new password")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testChangePasswordRequiresCurrentPassword() throws Exception {
+        String username = newUser();
+        String token = JsonPath.read(mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.accessToken");
+
+        // a bearer token alone, as a leaked one would be, cannot set a new password
+        for (UserController.PasswordChange change : List.of(
+                new UserController.PasswordChange(null, "new password"),
+                new UserController.PasswordChange("wrong password", "new password"))) {
+            mockMvc.perform(put("/user/password")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType("application/json")
+                            .content(TestUtil.convertObjectToJsonBytes(change)))
+                    .andExpect(status().isForbidden());
+        }
+
+        // confirm the password and the token still work
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/auth/revoke").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testDisablingAccountInvalidatesRememberedCredentials() throws Exception {
+        String username = newUser();
+
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk());
+
+        // only admins may disable an account
+        mockMvc.perform(put("/admin/users/" + username + "/enabled")
+                        .param("enabled", "false")
+                        .with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(put("/admin/users/" + username + "/enabled")
+                        .param("enabled", "false")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+
+        // confirm the remembered credentials no longer log the user in
+        assertThat(verifiedCredentialCache.get(verifiedCredentialCache.keyFor(username, PASSWORD))).isNull();
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(put("/admin/users/" + username + "/enabled")
+                        .param("enabled", "true")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/auth/token").with(httpBasic(username, PASSWORD)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testDisablingUnknownAccount() throws Exception {
+        mockMvc.perform(put("/admin/users/does-not-exist/enabled")
+                        .param("enabled", "false")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isNotFound());
+    }
+
+    private String newUser() throws Exception {
+        String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+        // the password is write only, so the request body is built by hand
+        Map<String, Object> user = Map.of(
+                "username", username,
+                "password", PASSWORD,
+                "authorities", List.of(),
+                "userMeta", Map.of("name", username, "email", username + "@email.com"));
+        mockMvc.perform(post("/user")
+                        .contentType("application/json")
+                        .content(TestUtil.convertObjectToJsonBytes(user)))
+                .andExpect(status().isOk());
+        return username;
+    }
+}
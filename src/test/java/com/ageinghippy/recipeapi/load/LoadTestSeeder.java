@@ -0,0 +1,118 @@
+package com.ageinghippy.recipeapi.load;
+
+import com.ageinghippy.recipeapi.configuration.ReviewAggregateBackfill;
+import com.ageinghippy.recipeapi.model.*;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.ReviewRepo;
+import com.ageinghippy.recipeapi.repository.UserRepo;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Seeds the load test database straight through the repositories: users sharing one password, recipes named
+ * from a small vocabulary so searches find them, and reviews by other users. The same seed gives the same data.
+ */
+class LoadTestSeeder {
+
+    static final String PASSWORD = "password";
+
+    static final String[] WORDS = {"chicken", "beef", "tofu", "pasta", "rice", "curry", "soup", "salad",
+            "stew", "pie", "cake", "bread", "noodle", "roast", "spicy", "sweet", "lemon", "garlic", "tomato", "cheese"};
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ApplicationContext context;
+    private final Random random;
+
+    final List<String> usernames = new ArrayList<>();
+    final List<Long> recipeIds = new CopyOnWriteArrayList<>();
+    final Map<String, List<Long>> recipeIdsByAuthor = new ConcurrentHashMap<>();
+    final Map<Long, String> authorByRecipeId = new ConcurrentHashMap<>();
+
+    LoadTestSeeder(ApplicationContext context, long seed) {
+        this.context = context;
+        this.random = new Random(seed);
+    }
+
+    void seed(int users, int recipes, int reviewsPerRecipe) {
+        UserRepo userRepo = context.getBean(UserRepo.class);
+        RecipeRepo recipeRepo = context.getBean(RecipeRepo.class);
+        ReviewRepo reviewRepo = context.getBean(ReviewRepo.class);
+
+        long start = System.nanoTime();
+        // BCrypt is slow on purpose, every user gets the same hash
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<CustomUserDetails> savedUsers = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = "loaduser" + i;
+            savedUsers.add(CustomUserDetails.builder()
+                    .username(username)
+                    .password(passwordHash)
+                    .authorities(List.of(new Role(Role.Roles.ROLE_USER)))
+                    .userMeta(UserMeta.builder().name(username).email(username + "@email.com").build())
+                    .build());
+            usernames.add(username);
+        }
+        savedUsers = userRepo.saveAll(savedUsers);
+
+        for (int from = 0; from < recipes; from += BATCH_SIZE) {
+            List<Recipe> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + BATCH_SIZE, recipes); i++) {
+                batch.add(recipe(savedUsers.get(random.nextInt(users))));
+            }
+            for (Recipe recipe : recipeRepo.saveAll(batch)) {
+                recipeIds.add(recipe.getId());
+                recipeIdsByAuthor.computeIfAbsent(recipe.getAuthor(), k -> new CopyOnWriteArrayList<>()).add(recipe.getId());
+                authorByRecipeId.put(recipe.getId(), recipe.getAuthor());
+
+                List<Review> reviews = new ArrayList<>();
+                for (int r = 0; r < reviewsPerRecipe && users > 1; r++) {
+                    CustomUserDetails reviewer = savedUsers.get(random.nextInt(users));
+                    if (!reviewer.getUsername().equals(recipe.getAuthor())) {
+                        reviews.add(Review.builder()
+                                .user(reviewer)
+                                .recipe(recipe)
+                                .rating(random.nextInt(10) + 1)
+                                .description("Seeded review " + r)
+                                .build());
+                    }
+                }
+                reviewRepo.saveAll(reviews);
+            }
+        }
+        context.getBean(ReviewAggregateBackfill.class).backfill();
+
+        System.out.printf("SEEDED %d users, %d recipes, up to %d reviews each in %dms%n", users, recipes,
+                reviewsPerRecipe, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    Recipe recipe(CustomUserDetails author) {
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0, count = 2 + random.nextInt(10); i < count; i++) {
+            ingredients.add(Ingredient.builder().name(word()).amount((i + 1) + " cups").state("fresh").build());
+        }
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0, count = 2 + random.nextInt(8); i < count; i++) {
+            steps.add(Step.builder().stepNumber(i + 1).description("Step " + (i + 1) + ": add the " + word()).build());
+        }
+        return Recipe.builder()
+                .name(word() + " " + word() + " " + word())
+                .minutesToMake(5 + random.nextInt(120))
+                .difficultyRating(random.nextInt(11))
+                .user(author)
+                .ingredients(ingredients)
+                .steps(steps)
+                .build();
+    }
+
+    String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
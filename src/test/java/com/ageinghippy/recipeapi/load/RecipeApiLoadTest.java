@@ -0,0 +1,284 @@
+package com.ageinghippy.recipeapi.load;
+
+import com.ageinghippy.recipeapi.RecipeapiApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End to end load test: starts the whole application on an in memory H2 database and a single, isolated
+ * hazelcast member, seeds a dataset and drives a mix of reads and writes with concurrent clients, each logged
+ * in with a bearer token of its own. Reports throughput and p50/p99/p999 latency per endpoint.
+ * <p>
+ * Run with {@code ./gradlew loadTest}, sized with system properties, e.g.
+ * {@code ./gradlew loadTest -Dloadtest.clients=200 -Dloadtest.recipes=20000 -Dloadtest.durationSeconds=120}.
+ * The mix is a list of endpoint:weight, default {@value #DEFAULT_MIX}.
+ */
+@Tag("load")
+class RecipeApiLoadTest {
+
+    private static final String DEFAULT_MIX = "getById:50,search:20,postRecipe:10,postReview:10,patchRecipe:10";
+
+    private final int users = Integer.getInteger("loadtest.users", 50);
+    private final int recipes = Integer.getInteger("loadtest.recipes", 2_000);
+    private final int reviewsPerRecipe = Integer.getInteger("loadtest.reviewsPerRecipe", 5);
+    private final int clients = Integer.getInteger("loadtest.clients", 64);
+    private final long warmUpSeconds = Long.getLong("loadtest.warmUpSeconds", 10);
+    private final long durationSeconds = Long.getLong("loadtest.durationSeconds", 60);
+    private final long seed = Long.getLong("loadtest.seed", 42);
+    private final String mix = System.getProperty("loadtest.mix", DEFAULT_MIX);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private LoadTestSeeder seeder;
+    private String baseUrl;
+
+    @Test
+    public void runLoad() throws Exception {
+        // a cluster of its own, whatever else is running on the network
+        System.setProperty("hz.cluster-name", "recipeapi-loadtest-" + UUID.randomUUID());
+        System.setProperty("hz.network.join.multicast.enabled", "false");
+        System.setProperty("hz.network.join.auto-detection.enabled", "false");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RecipeapiApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.org.hibernate.SQL=INFO",
+                        "logging.level.org.springframework.web=INFO",
+                        "recipeapi.cache.warm-up.enabled=false")
+                .run()) {
+            baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            seeder = new LoadTestSeeder(context, seed);
+            seeder.seed(users, recipes, reviewsPerRecipe);
+
+            List<Endpoint> weighted = weightedMix();
+            System.out.println("WARMING UP FOR " + warmUpSeconds + "s");
+            drive(weighted, warmUpSeconds);
+            System.out.println("MEASURING FOR " + durationSeconds + "s WITH " + clients + " CLIENTS");
+            Map<Endpoint, Stats> results = drive(weighted, durationSeconds);
+
+            report(results);
+            assertThat(results.values().stream().mapToLong(Stats::requests).sum()).isPositive();
+        }
+    }
+
+    private Map<Endpoint, Stats> drive(List<Endpoint> weighted, long seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Map<Endpoint, Stats>>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                String username = seeder.usernames.get(client % seeder.usernames.size());
+                futures.add(executor.submit(() -> runClient(username, weighted, deadline)));
+            }
+            Map<Endpoint, Stats> merged = new EnumMap<>(Endpoint.class);
+            for (Future<Map<Endpoint, Stats>> future : futures) {
+                future.get().forEach((endpoint, stats) -> merged.merge(endpoint, stats, Stats::merge));
+            }
+            return merged;
+        }
+    }
+
+    private Map<Endpoint, Stats> runClient(String username, List<Endpoint> weighted, long deadline) throws Exception {
+        String token = login(username);
+        Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            Endpoint endpoint = weighted.get(random.nextInt(weighted.size()));
+            HttpRequest request = request(endpoint, username, token, random);
+            if (request == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                ok = response.statusCode() / 100 == 2;
+                if (ok && endpoint == Endpoint.POST_RECIPE) {
+                    long id = objectMapper.readTree(response.body()).get("id").asLong();
+                    seeder.recipeIdsByAuthor.computeIfAbsent(username, k -> new CopyOnWriteArrayList<>()).add(id);
+                }
+            } catch (Exception e) {
+                ok = false;
+            }
+            stats.computeIfAbsent(endpoint, k -> new Stats()).record(System.nanoTime() - start, ok);
+        }
+        return stats;
+    }
+
+    private HttpRequest request(Endpoint endpoint, String username, String token, Random random) throws Exception {
+        return switch (endpoint) {
+            case GET_BY_ID -> get("/recipe/" + randomRecipeId(random));
+            case SEARCH -> get("/recipe/search/" + LoadTestSeeder.WORDS[random.nextInt(LoadTestSeeder.WORDS.length)]);
+            case POST_RECIPE -> {
+                ObjectNode recipe = objectMapper.valueToTree(seeder.recipe(null));
+                recipe.remove(List.of("id", "author", "reviews", "reviewRating", "reviewCount"));
+                yield send("POST", "/recipe", token, recipe);
+            }
+            case POST_REVIEW -> {
+                Long recipeId = randomRecipeId(random);
+                if (username.equals(seeder.authorByRecipeId.get(recipeId))) {
+                    yield null;
+                }
+                ObjectNode review = objectMapper.createObjectNode()
+                        .put("rating", random.nextInt(10) + 1)
+                        .put("description", "Load test review");
+                yield send("POST", "/review/" + recipeId, token, review);
+            }
+            case PATCH_RECIPE -> {
+                List<Long> own = seeder.recipeIdsByAuthor.get(username);
+                if (own == null || own.isEmpty()) {
+                    yield null;
+                }
+                ObjectNode patch = objectMapper.createObjectNode()
+                        .put("id", own.get(random.nextInt(own.size())))
+                        .put("minutesToMake", 5 + random.nextInt(120));
+                patch.putArray("ingredients");
+                patch.putArray("steps");
+                yield send("PATCH", "/recipe", token, patch);
+            }
+        };
+    }
+
+    private Long randomRecipeId(Random random) {
+        return seeder.recipeIds.get(random.nextInt(seeder.recipeIds.size()));
+    }
+
+    private String login(String username) throws Exception {
+        String basic = Base64.getEncoder().encodeToString(
+                (username + ":" + LoadTestSeeder.PASSWORD).getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/token"))
+                .header("Authorization", "Basic " + basic)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        JsonNode body = objectMapper.readTree(response.body());
+        return body.get("accessToken").asText();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String token, JsonNode body) throws Exception {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private List<Endpoint> weightedMix() {
+        List<Endpoint> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Endpoint endpoint = Endpoint.of(parts[0]);
+            for (int i = 0; i < Integer.parseInt(parts[1]); i++) {
+                weighted.add(endpoint);
+            }
+        }
+        return weighted;
+    }
+
+    private void report(Map<Endpoint, Stats> results) {
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        results.forEach((endpoint, stats) -> {
+            long[] latencies = stats.sortedLatencies();
+            System.out.printf("%-12s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                    endpoint.key, stats.requests(), stats.errors, stats.requests() / (double) durationSeconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+        });
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private enum Endpoint {
+        GET_BY_ID("getById"),
+        SEARCH("search"),
+        POST_RECIPE("postRecipe"),
+        POST_REVIEW("postReview"),
+        PATCH_RECIPE("patchRecipe");
+
+        private final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        static Endpoint of(String key) {
+            return Arrays.stream(values())
+                    .filter(endpoint -> endpoint.key.equals(key))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + key));
+        }
+    }
+
+    private static class Stats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long nanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        long requests() {
+            return count;
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        Stats merge(Stats other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ageinghippy.recipeapi.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedPostingListTests {
+
+    @Test
+    public void testGapsRoundTripAcrossByteBoundaries() {
+        // gaps of the largest value one, two, three and four bytes hold, with a single step after each
+        long[] ids = {0, 127, 255, 16_638, 16_639, 2_113_790, 2_113_791, 270_549_246L, Long.MAX_VALUE};
+        CompressedPostingList list = listOf(ids);
+
+        assertThat(readAll(list)).containsExactly(box(ids));
+        assertThat(list.size()).isEqualTo(ids.length);
+    }
+
+    @Test
+    public void testGapLengths() {
+        assertThat(listOf(127).encodedLength()).isEqualTo(1);
+        assertThat(listOf(128).encodedLength()).isEqualTo(2);
+        assertThat(listOf(16_383).encodedLength()).isEqualTo(2);
+        assertThat(listOf(16_384).encodedLength()).isEqualTo(3);
+        // sixty three bits take nine bytes of seven
+        assertThat(listOf(Long.MAX_VALUE).encodedLength()).isEqualTo(9);
+        // a dense run costs a byte an id
+        assertThat(listOf(1, 2, 3, 4, 5).encodedLength()).isEqualTo(5);
+    }
+
+    @Test
+    public void testSkipTo() {
+        CompressedPostingList list = listOf(3, 10, 200, 201);
+
+        CompressedPostingList.Cursor cursor = list.cursor();
+        // before the first id, then exactly on ids and between them
+        assertThat(cursor.skipTo(1)).isEqualTo(3);
+        assertThat(cursor.skipTo(3)).isEqualTo(3);
+        assertThat(cursor.skipTo(4)).isEqualTo(10);
+        assertThat(cursor.skipTo(200)).isEqualTo(200);
+        // never backwards
+        assertThat(cursor.skipTo(5)).isEqualTo(200);
+        assertThat(cursor.skipTo(201)).isEqualTo(201);
+        // past the end, and staying there
+        assertThat(cursor.skipTo(202)).isEqualTo(-1);
+        assertThat(cursor.skipTo(1)).isEqualTo(-1);
+        assertThat(cursor.next()).isEqualTo(-1);
+
+        assertThat(list.cursor().skipTo(201)).isEqualTo(201);
+        assertThat(list.cursor().skipTo(500)).isEqualTo(-1);
+        assertThat(new CompressedPostingList().cursor().skipTo(0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testSkipToMergesTheDelta() {
+        CompressedPostingList list = listOf(10, 20, 30, 40);
+        list.add(15);
+        list.add(5);
+        list.remove(20);
+        list.remove(40);
+
+        assertThat(readAll(list)).containsExactly(5L, 10L, 15L, 30L);
+        CompressedPostingList.Cursor cursor = list.cursor();
+        assertThat(cursor.skipTo(11)).isEqualTo(15);
+        assertThat(cursor.skipTo(20)).isEqualTo(30);
+        assertThat(cursor.skipTo(31)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testOutOfOrderChangesAreNotReEncodedEachTime() {
+        CompressedPostingList list = new CompressedPostingList();
+        for (long id = 1000; id < 2000; id++) {
+            list.add(id);
+        }
+        int encodedLength = list.encodedLength();
+
+        // below the threshold the changes stay in the delta, the encoded bytes untouched
+        for (long id = 1; id <= 100; id++) {
+            list.add(id);
+        }
+        list.remove(1500);
+        assertThat(list.encodedLength()).isEqualTo(encodedLength);
+        assertThat(list.size()).isEqualTo(1099);
+
+        // past it they are merged into the encoded ids
+        for (long id = 101; id <= 200; id++) {
+            list.add(id);
+        }
+        assertThat(list.encodedLength()).isGreaterThan(encodedLength);
+        assertThat(list.size()).isEqualTo(1199);
+        assertThat(list.cursor().skipTo(1500)).isEqualTo(1501);
+    }
+
+    @Test
+    public void testRemovedIdCanBeAddedBack() {
+        CompressedPostingList list = listOf(1, 2, 3);
+        list.remove(2);
+        list.add(2);
+        list.remove(3);
+
+        assertThat(readAll(list)).containsExactly(1L, 2L);
+        list.remove(1);
+        list.remove(2);
+        assertThat(list.isEmpty()).isTrue();
+        assertThat(readAll(list)).isEmpty();
+    }
+
+    @Test
+    public void testMatchesASortedSetUnderRandomChanges() {
+        Random random = new Random(42);
+        TreeSet<Long> expected = new TreeSet<>();
+        CompressedPostingList list = new CompressedPostingList();
+
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(5_000);
+            // only absent ids are added and present ids removed, as the owning index does
+            if (expected.contains(id)) {
+                expected.remove(id);
+                list.remove(id);
+            } else {
+                expected.add(id);
+                list.add(id);
+            }
+            assertThat(list.size()).isEqualTo(expected.size());
+        }
+
+        assertThat(readAll(list)).containsExactlyElementsOf(expected);
+        CompressedPostingList.Cursor cursor = list.cursor();
+        for (long target = 0; target < 5_000; target += 37) {
+            Long next = expected.ceiling(target);
+            assertThat(cursor.skipTo(target)).isEqualTo(next == null ? -1 : next);
+        }
+    }
+
+    private static CompressedPostingList listOf(long... ids) {
+        CompressedPostingList list = new CompressedPostingList();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<Long> readAll(CompressedPostingList list) {
+        List<Long> ids = new ArrayList<>();
+        CompressedPostingList.Cursor cursor = list.cursor();
+        for (long id = cursor.next(); id != -1; id = cursor.next()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static Long[] box(long[] ids) {
+        Long[] boxed = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ageinghippy.recipeapi.search;
+
+import com.ageinghippy.recipeapi.repository.RecipeIngredientName;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * RecipeIngredientIndex on its own, built from a mocked repository.
+ */
+class RecipeIngredientIndexTests {
+
+    private RecipeRepo recipeRepo;
+
+    private RecipeIngredientIndex index;
+
+    @BeforeEach
+    public void setup() {
+        recipeRepo = mock(RecipeRepo.class);
+        index = new RecipeIngredientIndex();
+        index.recipeRepo = recipeRepo;
+        index.rebuildBatchSize = 100;
+    }
+
+    @Test
+    public void testSearchesTheDatabaseUntilBuilt() {
+        when(recipeRepo.findIdsUsingAll(Set.of("brown sugar"), 1)).thenReturn(List.of(2L, 7L));
+        when(recipeRepo.findIdsUsingAllAndNone(Set.of("brown sugar"), Set.of("egg"), 1)).thenReturn(List.of(7L));
+
+        assertThat(index.findRecipes(List.of(" Brown  Sugar"), List.of())).containsExactly(2L, 7L);
+        assertThat(index.findRecipes(List.of("brown sugar"), List.of("EGG"))).containsExactly(7L);
+    }
+
+    @Test
+    public void testSearchesTheIndexOnceBuilt() {
+        when(recipeRepo.findMinimumId()).thenReturn(1L);
+        when(recipeRepo.findMaximumId()).thenReturn(3L);
+        when(recipeRepo.findIngredientNamesBetween(anyLong(), anyLong())).thenReturn(List.of(
+                new RecipeIngredientName(1L, "Egg"),
+                new RecipeIngredientName(1L, "Flour"),
+                new RecipeIngredientName(2L, "Flour"),
+                new RecipeIngredientName(3L, "Flour"),
+                new RecipeIngredientName(3L, "Sugar")));
+        assertThat(index.rebuild()).isEqualTo(3);
+
+        assertThat(index.findRecipes(List.of("flour"), List.of())).containsExactly(1L, 2L, 3L);
+        assertThat(index.findRecipes(List.of("flour"), List.of("egg"))).containsExactly(2L, 3L);
+        assertThat(index.findRecipes(List.of("flour", "sugar"), List.of())).containsExactly(3L);
+        assertThat(index.findRecipes(List.of("butter"), List.of())).isEmpty();
+        verify(recipeRepo, never()).findIdsUsingAll(Set.of("flour"), 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.ageinghippy.recipeapi.search;
+
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.repository.RecipeName;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.utils.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * RecipeNameIndex on its own, built from a mocked repository and changed outside of any transaction,
+ * so every change applies straight away.
+ */
+class RecipeNameIndexTests {
+
+    private RecipeRepo recipeRepo;
+
+    private RecipeNameIndex index;
+
+    @BeforeEach
+    public void setup() {
+        recipeRepo = mock(RecipeRepo.class);
+        index = new RecipeNameIndex();
+        index.recipeRepo = recipeRepo;
+        index.enabled = true;
+        index.maxMatches = 1000;
+        index.rebuildBatchSize = 2;
+    }
+
+    @Test
+    public void testTrigramsOf() {
+        assertThat(RecipeNameIndex.trigramsOf("pasta")).containsExactly("pas", "ast", "sta");
+        // repeated trigrams are listed once
+        assertThat(RecipeNameIndex.trigramsOf("aaaa")).containsExactly("aaa");
+        assertThat(RecipeNameIndex.trigramsOf("abc")).containsExactly("abc");
+        assertThat(RecipeNameIndex.trigramsOf("ab")).isEmpty();
+        assertThat(RecipeNameIndex.trigramsOf("")).isEmpty();
+    }
+
+    @Test
+    public void testFindContaining() {
+        build(new RecipeName(1L, "Spaghetti Bolognese"),
+                new RecipeName(2L, "Baked Pasta"),
+                new RecipeName(3L, "Pasta Salad"),
+                new RecipeName(4L, "Potato Salad"),
+                new RecipeName(5L, "abcxbcd"));
+
+        assertThat(index.findContaining("pasta")).containsExactly(2L, 3L);
+        assertThat(index.findContaining("SALAD")).containsExactly(3L, 4L);
+        assertThat(index.findContaining("pasta sal")).containsExactly(3L);
+        assertThat(index.findContaining("risotto")).isEmpty();
+        // holding every trigram of the query is not enough, the name must contain it
+        assertThat(index.findContaining("abcd")).isEmpty();
+    }
+
+    @Test
+    public void testFoldingIgnoresTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        // under tr, I lower-cases to a dotless i
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            build(new RecipeName(1L, "APPLE PIE"));
+
+            assertThat(index.findContaining("pie")).containsExactly(1L);
+            assertThat(Utils.containsIgnoreCase("APPLE PIE", "pie")).isTrue();
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testShortQueriesAreLeftToTheDatabase() {
+        build(new RecipeName(1L, "Pasta"));
+
+        assertThat(index.findContaining("pa")).isNull();
+        assertThat(index.findContaining("")).isNull();
+        assertThat(index.findContaining("pas")).containsExactly(1L);
+    }
+
+    @Test
+    public void testLargeResultsAndMissingIndexAreLeftToTheDatabase() {
+        // not built yet
+        assertThat(index.findContaining("pasta")).isNull();
+
+        build(new RecipeName(1L, "Pasta"), new RecipeName(2L, "Baked Pasta"));
+        index.maxMatches = 1;
+        assertThat(index.findContaining("pasta")).isNull();
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        build(new RecipeName(1L, "Pasta"), new RecipeName(2L, "Soup"));
+
+        // renamed, it leaves the trigrams of the old name
+        index.put(Recipe.builder().id(1L).name("Risotto").build());
+        assertThat(index.findContaining("pasta")).isEmpty();
+        assertThat(index.findContaining("risotto")).containsExactly(1L);
+
+        // created
+        index.put(Recipe.builder().id(3L).name("Pasta Bake").build());
+        assertThat(index.findContaining("pasta")).containsExactly(3L);
+
+        index.remove(2L);
+        assertThat(index.findContaining("soup")).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+
+        // removing twice, or a recipe never indexed, changes nothing
+        index.remove(2L);
+        index.remove(99L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebuildReplacesTheIndex() {
+        build(new RecipeName(1L, "Pasta"));
+        // a change this node missed is picked up by the next rebuild
+        build(new RecipeName(1L, "Pasta"), new RecipeName(2L, "Pasta Salad"), new RecipeName(3L, "Soup"));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.findContaining("pasta")).containsExactly(1L, 2L);
+    }
+
+    // the names are read in batches of two, after the last id of the previous batch
+    private void build(RecipeName... recipes) {
+        when(recipeRepo.findNamesAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        for (int i = 0; i < recipes.length; i += 2) {
+            long afterId = i == 0 ? 0 : recipes[i - 1].id();
+            List<RecipeName> batch = List.of(recipes).subList(i, Math.min(i + 2, recipes.length));
+            when(recipeRepo.findNamesAfter(eq(afterId), any(Pageable.class))).thenReturn(batch);
+        }
+        assertThat(index.rebuild()).isEqualTo(recipes.length);
+    }
+}
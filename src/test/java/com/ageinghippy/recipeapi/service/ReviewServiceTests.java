@@ -0,0 +1,144 @@
+package com.ageinghippy.recipeapi.service;
+
+import com.ageinghippy.recipeapi.exception.NoSuchReviewException;
+import com.ageinghippy.recipeapi.model.Ingredient;
+import com.ageinghippy.recipeapi.model.Recipe;
+import com.ageinghippy.recipeapi.model.Review;
+import com.ageinghippy.recipeapi.model.Step;
+import com.ageinghippy.recipeapi.repository.RecipeRepo;
+import com.ageinghippy.recipeapi.repository.UserRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent writes to one review, which must leave the review aggregates on its recipe matching the
+ * reviews actually stored. Every test reviews a recipe of its own, so the shared test data is untouched.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReviewServiceTests {
+
+    private static final int THREADS = 8;
+
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    ReviewService reviewService;
+
+    @Autowired
+    RecipeRepo recipeRepo;
+
+    @Autowired
+    UserRepo userRepo;
+
+    @Test
+    public void testConcurrentUpdatesKeepTheRatingSum() throws Exception {
+        Long recipeId = newRecipe();
+        Review review = reviewService.postNewReview(newReview(5), recipeId);
+
+        // every thread rewrites the same review over and over, each with ratings of its own
+        runConcurrently(thread -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                reviewService.updateReviewById(Review.builder()
+                        .id(review.getId())
+                        .rating((thread + i) % 10 + 1)
+                        .build());
+            }
+            return null;
+        });
+
+        // confirm the aggregates hold the last rating written, not a sum of deltas from stale ratings
+        Recipe recipe = recipeRepo.findById(recipeId).orElseThrow();
+        Review stored = reviewService.getReviewById(review.getId());
+        assertThat(recipe.getReviewCount()).isEqualTo(1);
+        assertThat(recipe.getRatingSum()).isEqualTo(stored.getRating());
+        assertThat(recipe.getReviewRating()).isEqualTo(stored.getRating());
+    }
+
+    @Test
+    public void testConcurrentDeletesRemoveTheRatingOnce() throws Exception {
+        Long recipeId = newRecipe();
+        reviewService.postNewReview(newReview(4), recipeId);
+        Review review = reviewService.postNewReview(newReview(8), recipeId);
+
+        List<Boolean> deleted = runConcurrently(thread -> {
+            try {
+                reviewService.deleteReviewById(review.getId());
+                return true;
+            } catch (NoSuchReviewException e) {
+                return false;
+            }
+        });
+
+        // confirm one delete won and the others found the review gone
+        assertThat(deleted).containsOnlyOnce(true);
+        Recipe recipe = recipeRepo.findById(recipeId).orElseThrow();
+        assertThat(recipe.getReviewCount()).isEqualTo(1);
+        assertThat(recipe.getRatingSum()).isEqualTo(4);
+        assertThat(recipe.getReviewRating()).isEqualTo(4);
+    }
+
+    private Long newRecipe() {
+        Recipe recipe = Recipe.builder()
+                .name("contested recipe")
+                .difficultyRating(3)
+                .minutesToMake(10)
+                .user(userRepo.findByUsername("bob"))
+                .ingredients(List.of(Ingredient.builder().name("flour").amount("1 cup").build()))
+                .steps(List.of(Step.builder().stepNumber(1).description("bake").build()))
+                .build();
+        return recipeRepo.save(recipe).getId();
+    }
+
+    private Review newReview(int rating) {
+        return Review.builder()
+                .user(userRepo.findByUsername("sally"))
+                .rating(rating)
+                .description("reviewed " + rating)
+                .build();
+    }
+
+    // runs the task on every thread at once, passing each its thread number, and returns their results
+    private static <T> List<T> runConcurrently(ThreadTask<T> task) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int number = thread;
+                futures.add(executor.submit((Callable<T>) () -> {
+                    start.await();
+                    return task.run(number);
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new AssertionError("concurrent write failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask<T> {
+        T run(int thread) throws Exception;
+    }
+}